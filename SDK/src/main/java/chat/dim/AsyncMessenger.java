@@ -0,0 +1,261 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import chat.dim.core.AsyncPacker;
+import chat.dim.core.AsyncProcessor;
+import chat.dim.core.Packer;
+import chat.dim.core.Processor;
+import chat.dim.protocol.Content;
+import chat.dim.protocol.InstantMessage;
+import chat.dim.protocol.ReliableMessage;
+import chat.dim.protocol.SecureMessage;
+
+/**
+ *  Messenger with asynchronous interfaces
+ *  <p>
+ *      If the packer/processor is asynchronous too, the calls will be passed to it directly;
+ *      else the synchronous methods will be called on the executor,
+ *      so the callers don't need to manage threads.
+ *  </p>
+ *  <p>
+ *      When only the packer is asynchronous, processing a package is composed step by step:
+ *      deserialize, envelope checks, verify, decrypt, process, encrypt and sign,
+ *      so the packer's crypto/storage lookups overlap without holding a thread.
+ *      In this mode the envelope checks of 'MessageProcessor' still apply,
+ *      but overrides of its 'processReliableMessage()' / 'processSecureMessage()' are bypassed.
+ *  </p>
+ */
+public abstract class AsyncMessenger extends Messenger implements AsyncPacker, AsyncProcessor {
+
+    /**
+     *  Executor for running synchronous packer/processor
+     *  (see 'chat.dim.exec.PackageExecutors')
+     */
+    protected abstract Executor getExecutor();
+
+    //
+    //  Interfaces for Packing Message
+    //
+
+    @Override
+    public CompletableFuture<SecureMessage> encryptMessageAsync(InstantMessage iMsg) {
+        Packer packer = getPacker();
+        if (packer instanceof AsyncPacker) {
+            return ((AsyncPacker) packer).encryptMessageAsync(iMsg);
+        }
+        return CompletableFuture.supplyAsync(() -> encryptMessage(iMsg), getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<ReliableMessage> signMessageAsync(SecureMessage sMsg) {
+        Packer packer = getPacker();
+        if (packer instanceof AsyncPacker) {
+            return ((AsyncPacker) packer).signMessageAsync(sMsg);
+        }
+        return CompletableFuture.supplyAsync(() -> signMessage(sMsg), getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<SecureMessage> verifyMessageAsync(ReliableMessage rMsg) {
+        Packer packer = getPacker();
+        if (packer instanceof AsyncPacker) {
+            return ((AsyncPacker) packer).verifyMessageAsync(rMsg);
+        }
+        return CompletableFuture.supplyAsync(() -> verifyMessage(rMsg), getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<InstantMessage> decryptMessageAsync(SecureMessage sMsg) {
+        Packer packer = getPacker();
+        if (packer instanceof AsyncPacker) {
+            return ((AsyncPacker) packer).decryptMessageAsync(sMsg);
+        }
+        return CompletableFuture.supplyAsync(() -> decryptMessage(sMsg), getExecutor());
+    }
+
+    //
+    //  Interfaces for Processing Message
+    //
+
+    /**
+     *  Check whether to compose the processing steps with the asynchronous packer
+     */
+    protected boolean isComposing() {
+        return !(getProcessor() instanceof AsyncProcessor) && getPacker() instanceof AsyncPacker;
+    }
+
+    @Override
+    public CompletableFuture<List<byte[]>> processPackageAsync(byte[] data) {
+        Processor processor = getProcessor();
+        if (processor instanceof AsyncProcessor) {
+            return ((AsyncProcessor) processor).processPackageAsync(data);
+        } else if (!isComposing()) {
+            return CompletableFuture.supplyAsync(() -> processPackage(data), getExecutor());
+        }
+        // 1. deserialize message
+        return CompletableFuture.supplyAsync(() -> deserializeMessage(data), getExecutor())
+                .thenCompose(rMsg -> {
+                    if (rMsg == null) {
+                        // no valid message received
+                        return CompletableFuture.completedFuture(null);
+                    } else if (processor instanceof MessageProcessor
+                            && !((MessageProcessor) processor).checkMessageTime(rMsg)) {
+                        // stale message
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    // 2. process message
+                    return processReliableMessageAsync(rMsg);
+                })
+                // 3. serialize responses
+                .thenApply(this::serializeMessages);
+    }
+
+    @Override
+    public CompletableFuture<List<ReliableMessage>> processReliableMessageAsync(ReliableMessage rMsg) {
+        Processor processor = getProcessor();
+        if (processor instanceof AsyncProcessor) {
+            return ((AsyncProcessor) processor).processReliableMessageAsync(rMsg);
+        } else if (!isComposing()) {
+            return CompletableFuture.supplyAsync(() -> processReliableMessage(rMsg), getExecutor());
+        }
+        MessageProcessor checker = processor instanceof MessageProcessor ? (MessageProcessor) processor : null;
+        List<ReliableMessage> results = new ArrayList<>();
+        // 0. check envelope before cryptography
+        return CompletableFuture.supplyAsync(() -> checker == null
+                        || checker.checkBeforeVerifying(rMsg, true, results), getExecutor())
+                .thenCompose(ok -> {
+                    if (!ok) {
+                        // dropped, deferred, routed or suspended
+                        return CompletableFuture.completedFuture(results.isEmpty() ? null : results);
+                    }
+                    // 1. verify message
+                    return verifyMessageAsync(rMsg).thenCompose(sMsg -> {
+                        if (sMsg == null) {
+                            // verify failed
+                            return CompletableFuture.completedFuture(null);
+                        } else if (checker != null) {
+                            checker.onMessageVerified(rMsg);
+                        }
+                        // 2. process message, 3. sign responses
+                        return processSecureMessageAsync(sMsg, rMsg)
+                                .thenCompose(responses -> mapAsync(responses, this::signMessageAsync));
+                    });
+                });
+    }
+
+    @Override
+    public CompletableFuture<List<SecureMessage>> processSecureMessageAsync(SecureMessage sMsg, ReliableMessage rMsg) {
+        Processor processor = getProcessor();
+        if (processor instanceof AsyncProcessor) {
+            return ((AsyncProcessor) processor).processSecureMessageAsync(sMsg, rMsg);
+        } else if (!isComposing()) {
+            return CompletableFuture.supplyAsync(() -> processSecureMessage(sMsg, rMsg), getExecutor());
+        }
+        // 1. decrypt message
+        return decryptMessageAsync(sMsg).thenCompose(iMsg -> {
+            if (iMsg == null) {
+                // cannot decrypt this message, not for you?
+                return CompletableFuture.completedFuture(null);
+            }
+            // 2. process message, 3. encrypt responses
+            return processInstantMessageAsync(iMsg, rMsg)
+                    .thenCompose(responses -> mapAsync(responses, this::encryptMessageAsync));
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<InstantMessage>> processInstantMessageAsync(InstantMessage iMsg, ReliableMessage rMsg) {
+        Processor processor = getProcessor();
+        if (processor instanceof AsyncProcessor) {
+            return ((AsyncProcessor) processor).processInstantMessageAsync(iMsg, rMsg);
+        }
+        return CompletableFuture.supplyAsync(() -> processInstantMessage(iMsg, rMsg), getExecutor());
+    }
+
+    @Override
+    public CompletableFuture<List<Content>> processContentAsync(Content content, ReliableMessage rMsg) {
+        Processor processor = getProcessor();
+        if (processor instanceof AsyncProcessor) {
+            return ((AsyncProcessor) processor).processContentAsync(content, rMsg);
+        }
+        return CompletableFuture.supplyAsync(() -> processContent(content, rMsg), getExecutor());
+    }
+
+    // run the async function for all items, keep the non-null results in order
+    private static <A, B> CompletableFuture<List<B>> mapAsync(List<A> items,
+                                                             Function<A, CompletableFuture<B>> fn) {
+        if (items == null || items.isEmpty()) {
+            // nothing to respond
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<B>> futures = new ArrayList<>(items.size());
+        for (A item : items) {
+            futures.add(fn.apply(item));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<B> results = new ArrayList<>(futures.size());
+            B res;
+            for (CompletableFuture<B> item : futures) {
+                res = item.join();
+                if (res != null) {
+                    results.add(res);
+                }
+            }
+            return results;
+        });
+    }
+
+    private List<byte[]> serializeMessages(List<ReliableMessage> responses) {
+        if (responses == null || responses.isEmpty()) {
+            // nothing to respond
+            return null;
+        }
+        List<byte[]> packages = new ArrayList<>(responses.size());
+        byte[] pack;
+        for (ReliableMessage res : responses) {
+            pack = serializeMessage(res);
+            if (pack == null) {
+                // should not happen
+                continue;
+            }
+            packages.add(pack);
+        }
+        return packages;
+    }
+
+}
@@ -30,22 +30,65 @@
  */
 package chat.dim;
 
+import java.util.Collections;
 import java.util.List;
 
 import chat.dim.core.Archivist;
 import chat.dim.core.Barrack;
+import chat.dim.exec.SingleFlight;
 import chat.dim.mkm.Entity;
 import chat.dim.mkm.Group;
+import chat.dim.mkm.LocalUserIndex;
 import chat.dim.mkm.User;
 import chat.dim.protocol.ID;
 
 
 public abstract class Facebook implements Entity.Delegate, User.DataSource, Group.DataSource {
 
+    // one creator for each ID
+    private final SingleFlight<ID, User> userFlight = new SingleFlight<>();
+    private final SingleFlight<ID, Group> groupFlight = new SingleFlight<>();
+
+    // local users, built from archivist
+    private volatile LocalUserIndex localUsers = null;
+
     protected abstract Barrack getBarrack();
 
     public abstract Archivist getArchivist();
 
+    /**
+     *  Get local users index, build it from archivist when not exists
+     *
+     * @return local users
+     */
+    protected LocalUserIndex getLocalUsers() {
+        LocalUserIndex index = localUsers;
+        if (index == null || index.isEmpty()) {
+            // not built yet, or not login yet
+            index = reloadLocalUsers();
+        }
+        return index;
+    }
+
+    /**
+     *  Rebuild the index from archivist,
+     *  call it when local users changed (login, logout, switched),
+     *  e.g.: from 'Archivist.Observer.onLocalUsersChanged()'
+     *
+     * @return local users
+     */
+    public LocalUserIndex reloadLocalUsers() {
+        Archivist archivist = getArchivist();
+        assert archivist != null : "archivist not ready";
+        List<ID> allUsers = archivist.getLocalUsers();
+        if (allUsers == null) {
+            allUsers = Collections.emptyList();
+        }
+        LocalUserIndex index = new LocalUserIndex(allUsers);
+        localUsers = index;
+        return index;
+    }
+
     /**
      *  Select local user for receiver
      *
@@ -54,23 +97,19 @@ public abstract class Facebook implements Entity.Delegate, User.DataSource, Grou
      */
     public ID selectUser(ID receiver) {
         assert receiver.isUser() || receiver.isBroadcast() : "user ID error: " + receiver;
-        Archivist archivist = getArchivist();
-        assert archivist != null : "archivist not ready";
-        List<ID> allUsers = archivist.getLocalUsers();
-        if (allUsers == null || allUsers.isEmpty()) {
+        LocalUserIndex allUsers = getLocalUsers();
+        if (allUsers.isEmpty()) {
             assert false : "local users should not be empty";
             return null;
         } else if (receiver.isBroadcast()) {
             // broadcast message can be decrypted by anyone, so
             // just return current user here
-            return allUsers.get(0);
+            return allUsers.getFirst();
         }
         // personal message
-        for (ID item : allUsers) {
-            if (receiver.equals(item)) {
-                // DISCUSS: set this item to be current user?
-                return item;
-            }
+        if (allUsers.contains(receiver)) {
+            // DISCUSS: set this item to be current user?
+            return receiver;
         }
         // not for me?
         return null;
@@ -84,22 +123,14 @@ public abstract class Facebook implements Entity.Delegate, User.DataSource, Grou
      */
     public ID selectMember(List<ID> members) {
         assert members != null && !members.isEmpty() : "group members not found";
-        Archivist archivist = getArchivist();
-        assert archivist != null : "archivist not ready";
-        List<ID> allUsers = archivist.getLocalUsers();
-        if (allUsers == null || allUsers.isEmpty()) {
+        LocalUserIndex allUsers = getLocalUsers();
+        if (allUsers.isEmpty()) {
             assert false : "local users should not be empty";
             return null;
         }
-        // group message (recipient not designated)
-        for (ID item : allUsers) {
-            if (members.contains(item)) {
-                // DISCUSS: set this item to be current user?
-                return item;
-            }
-        }
-        // not for me?
-        return null;
+        // group message (recipient not designated),
+        // take the foremost local user in the members
+        return allUsers.selectMember(members);
     }
 
     //-------- Entity Delegate
@@ -115,11 +146,18 @@ public abstract class Facebook implements Entity.Delegate, User.DataSource, Grou
         // get from user cache
         User user = barrack.getUser(uid);
         if (user == null) {
-            // create user and cache it
-            user = barrack.createUser(uid);
-            if (user != null) {
-                barrack.cacheUser(user);
-            }
+            // create user and cache it,
+            // other threads missing the same ID will wait for it
+            user = userFlight.execute(uid, () -> {
+                User created = barrack.getUser(uid);
+                if (created == null) {
+                    created = barrack.createUser(uid);
+                    if (created != null) {
+                        barrack.cacheUser(created);
+                    }
+                }
+                return created;
+            });
         }
         return user;
     }
@@ -135,11 +173,18 @@ public abstract class Facebook implements Entity.Delegate, User.DataSource, Grou
         // get from group cache
         Group group = barrack.getGroup(gid);
         if (group == null) {
-            // create group and cache it
-            group = barrack.createGroup(gid);
-            if (group != null) {
-                barrack.cacheGroup(group);
-            }
+            // create group and cache it,
+            // other threads missing the same ID will wait for it
+            group = groupFlight.execute(gid, () -> {
+                Group created = barrack.getGroup(gid);
+                if (created == null) {
+                    created = barrack.createGroup(gid);
+                    if (created != null) {
+                        barrack.cacheGroup(created);
+                    }
+                }
+                return created;
+            });
         }
         return group;
     }
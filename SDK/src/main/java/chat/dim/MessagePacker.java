@@ -30,12 +30,17 @@
  */
 package chat.dim;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import chat.dim.core.Packer;
 import chat.dim.mkm.User;
+import chat.dim.msg.DecryptResult;
 import chat.dim.msg.InstantMessagePacker;
 import chat.dim.msg.MessagePackerFactory;
+import chat.dim.msg.PendingMessageQueue;
 import chat.dim.msg.ReliableMessagePacker;
 import chat.dim.msg.SecureMessagePacker;
 import chat.dim.msg.SharedMessagePacker;
@@ -53,6 +58,9 @@ public abstract class MessagePacker extends TwinsHelper implements Packer {
     protected final SecureMessagePacker securePacker;
     protected final ReliableMessagePacker reliablePacker;
 
+    // waiting for receivers' visa
+    private volatile PendingMessageQueue pendingQueue = null;
+
     public MessagePacker(Facebook facebook, Messenger messenger) {
         super(facebook, messenger);
         MessagePackerFactory factory = SharedMessagePacker.packerFactory;
@@ -61,15 +69,65 @@ public abstract class MessagePacker extends TwinsHelper implements Packer {
         reliablePacker = factory.createReliableMessagePacker(messenger);
     }
 
+    public PendingMessageQueue getPendingQueue() {
+        return pendingQueue;
+    }
+
+    /**
+     *  Set queue to keep messages whose receivers' visa not found
+     *
+     * @param queue - pending messages, null to disable
+     */
+    public void setPendingQueue(PendingMessageQueue queue) {
+        pendingQueue = queue;
+    }
+
+    /**
+     *  Called when receiver/members' meta/visa not found while encrypting,
+     *  the group message had been encrypted for the other members (if any).
+     *  <p>
+     *      By default, the personal message is suspended in the pending queue;
+     *      and for group message, a split message for each of these members
+     *      ('receiver' is the member, 'group' is the group ID) is suspended,
+     *      so every member is resumed as soon as its own visa saved.
+     *      Without the pending queue, these receivers just miss this message.
+     *  </p>
+     *
+     * @param iMsg    - plain message
+     * @param missing - receiver/members not ready
+     */
+    protected void onReceiversMissing(InstantMessage iMsg, List<ID> missing) {
+        PendingMessageQueue queue = pendingQueue;
+        if (queue == null) {
+            return;
+        }
+        ID receiver = iMsg.getReceiver();
+        if (!receiver.isGroup()) {
+            // personal message (or split group message)
+            queue.suspendMessage(iMsg, missing);
+            return;
+        }
+        Map<String, Object> info;
+        InstantMessage split;
+        for (ID member : missing) {
+            info = iMsg.copyMap(false);
+            info.put("receiver", member.toString());
+            info.put("group", receiver.toString());
+            split = InstantMessage.parse(info);
+            if (split == null) {
+                assert false : "failed to split message for member: " + member + ", group: " + receiver;
+                continue;
+            }
+            queue.suspendMessage(split, Collections.singletonList(member));
+        }
+    }
+
     //
     //  InstantMessage -> SecureMessage -> ReliableMessage -> Data
     //
 
     @Override
     public SecureMessage encryptMessage(InstantMessage iMsg) {
-        // TODO: check receiver before calling this, make sure the visa.key exists;
-        //       otherwise, suspend this message for waiting receiver's visa/meta;
-        //       if receiver is a group, query all members' visa too!
         Facebook facebook = getFacebook();
         Messenger messenger = getMessenger();
         assert facebook != null && messenger != null : "twins not ready";
@@ -87,6 +145,18 @@ public abstract class MessagePacker extends TwinsHelper implements Packer {
         //          to encrypt the message, and the remote packer can get the overt group ID before
         //          decrypting to take the right message key.
         ID receiver = iMsg.getReceiver();
+        List<ID> members;
+        if (receiver.isGroup()) {
+            // group message
+            members = facebook.getMembers(receiver);
+            if (members == null || members.isEmpty()) {
+                assert false : "group not ready: " + receiver;
+                return null;
+            }
+        } else {
+            // personal message (or split group message)
+            members = null;
+        }
 
         //
         //  1. get message key with direction (sender -> receiver) or (sender -> group)
@@ -101,24 +171,20 @@ public abstract class MessagePacker extends TwinsHelper implements Packer {
         //
         //  2. encrypt 'content' to 'data' for receiver/group members
         //
-        if (receiver.isGroup()) {
-            // group message
-            List<ID> members = facebook.getMembers(receiver);
-            if (members == null || members.isEmpty()) {
-                assert false : "group not ready: " + receiver;
-                return null;
-            }
-            // a station will never send group message, so here must be a client;
-            // the client messenger should check the group's meta & members before encrypting,
-            // so we can trust that the group members MUST exist here.
-            sMsg = instantPacker.encryptMessage(iMsg, password, members);
-        } else {
-            // personal message (or split group message)
-            sMsg = instantPacker.encryptMessage(iMsg, password, null);
+        // a station will never send group message, so here must be a client;
+        // the client messenger should check the group's meta & members before encrypting,
+        // so we can trust that the group members MUST exist here;
+        // the members' metas & visas are fetched in one batch while encrypting,
+        // and the ones not found are collected in 'missing'.
+        List<ID> missing = new ArrayList<>();
+        sMsg = instantPacker.encryptMessage(iMsg, password, members, missing);
+        if (!missing.isEmpty()) {
+            // public keys for receiver/members not found,
+            // suspend for waiting their visas
+            onReceiversMissing(iMsg, missing);
         }
         if (sMsg == null) {
-            // public key for encryption not found
-            // TODO: suspend this message for waiting receiver's meta
+            // no receiver ready
             return null;
         }
 
@@ -188,4 +254,29 @@ public abstract class MessagePacker extends TwinsHelper implements Packer {
         //       (do it by application)
     }
 
+    /**
+     *  Decrypt message without throwing
+     *  <p>
+     *      Use this instead of 'decryptMessage()' on hot paths,
+     *      the failures for messages not for us or with bad keys
+     *      will be returned as reasons, no exception created.
+     *  </p>
+     *
+     * @param sMsg - encrypted message
+     * @return decrypted message or failure reason
+     */
+    @Override
+    public DecryptResult tryDecryptMessage(SecureMessage sMsg) {
+        ID receiver = sMsg.getReceiver();
+        User user = selectLocalUser(receiver);
+        if (user == null) {
+            // not for you?
+            return DecryptResult.failure(DecryptResult.Failure.RECEIVER_ERROR);
+        }
+        assert sMsg.getData() != null : "message data empty: "
+                + sMsg.getSender() + " => " + sMsg.getReceiver() + ", " + sMsg.getGroup();
+        // decrypt 'data' to 'content'
+        return securePacker.tryDecryptMessage(sMsg, user.getIdentifier());
+    }
+
 }
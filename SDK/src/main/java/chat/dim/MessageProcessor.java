@@ -32,10 +32,16 @@ package chat.dim;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import chat.dim.core.EnvelopeFilter;
 import chat.dim.core.Processor;
+import chat.dim.dkd.ConcurrentContentProcessorFactory;
 import chat.dim.dkd.ContentProcessor;
 import chat.dim.mkm.User;
+import chat.dim.msg.DecryptResult;
+import chat.dim.msg.SuspendedMessageQueue;
+import chat.dim.msg.TimeWindowPolicy;
 import chat.dim.protocol.Content;
 import chat.dim.protocol.ContentType;
 import chat.dim.protocol.Envelope;
@@ -48,6 +54,18 @@ public abstract class MessageProcessor extends TwinsHelper implements Processor
 
     protected final ContentProcessor.Factory factory;
 
+    // pre-filters for envelope
+    private final List<EnvelopeFilter> filters = new CopyOnWriteArrayList<>();
+
+    // time window for envelope
+    private volatile TimeWindowPolicy timeWindow = null;
+
+    // waiting for sender's meta
+    private volatile SuspendedMessageQueue suspendedQueue = null;
+
+    // decrypt without exceptions
+    private volatile boolean tryDecrypting = false;
+
     public MessageProcessor(Facebook facebook, Messenger messenger) {
         super(facebook, messenger);
         factory = createFactory(facebook, messenger);
@@ -56,6 +74,154 @@ public abstract class MessageProcessor extends TwinsHelper implements Processor
     // CPU factory
     protected abstract ContentProcessor.Factory createFactory(Facebook facebook, Messenger messenger);
 
+    /**
+     *  Check whether messages can be processed from many threads at the same time
+     *  (pipeline, conversation executor, parallel CPUs),
+     *  which needs a thread-safe CPU factory.
+     *  <p>
+     *      Override it to return true when your own factory is thread-safe.
+     *  </p>
+     *
+     * @return true on factory is 'ConcurrentContentProcessorFactory'
+     */
+    public boolean isThreadSafe() {
+        return factory instanceof ConcurrentContentProcessorFactory;
+    }
+
+    //
+    //  Envelope Filters
+    //
+
+    public void addFilter(EnvelopeFilter filter) {
+        filters.add(filter);
+    }
+
+    /**
+     *  Insert filter at the position, e.g.: put the DuplicateFilter at 0,
+     *  so replayed messages are dropped before other checks
+     *
+     * @param index  - position in the filter chain
+     * @param filter - envelope filter
+     */
+    public void addFilter(int index, EnvelopeFilter filter) {
+        filters.add(index, filter);
+    }
+
+    public void removeFilter(EnvelopeFilter filter) {
+        filters.remove(filter);
+    }
+
+    public TimeWindowPolicy getTimeWindow() {
+        return timeWindow;
+    }
+
+    /**
+     *  Set time window to drop stale messages right after deserializing
+     *
+     * @param policy - time window, null to disable
+     */
+    public void setTimeWindow(TimeWindowPolicy policy) {
+        timeWindow = policy;
+    }
+
+    /**
+     *  Check message time before verifying
+     *
+     * @param rMsg - network message
+     * @return false on out of time window
+     */
+    public boolean checkMessageTime(ReliableMessage rMsg) {
+        TimeWindowPolicy policy = timeWindow;
+        return policy == null || policy.checkMessage(rMsg);
+    }
+
+    public boolean isTryDecrypting() {
+        return tryDecrypting;
+    }
+
+    /**
+     *  Decrypt with 'Messenger.tryDecryptMessage()' in 'processSecureMessage()',
+     *  failures go to 'onDecryptError()' instead of throwing.
+     *  <p>
+     *      NOTICE: it calls the packer's 'tryDecryptMessage()' directly,
+     *      so overrides of 'decryptMessage()' are skipped,
+     *      and "receiver error" comes as RECEIVER_ERROR, not an exception.
+     *  </p>
+     *
+     * @param enabled - true to opt in, default is false
+     */
+    public void setTryDecrypting(boolean enabled) {
+        tryDecrypting = enabled;
+    }
+
+    public SuspendedMessageQueue getSuspendedQueue() {
+        return suspendedQueue;
+    }
+
+    /**
+     *  Set queue to keep messages whose sender's meta not found
+     *
+     * @param queue - suspended messages, null to disable
+     */
+    public void setSuspendedQueue(SuspendedMessageQueue queue) {
+        suspendedQueue = queue;
+    }
+
+    /**
+     *  Check whether the sender's meta exists for verifying
+     *
+     * @param rMsg - network message
+     * @return false on meta not found
+     */
+    protected boolean checkSender(ReliableMessage rMsg) {
+        if (rMsg.get("meta") != null) {
+            // attached meta
+            return true;
+        }
+        Facebook facebook = getFacebook();
+        assert facebook != null : "facebook not ready";
+        return facebook.getMeta(rMsg.getSender()) != null;
+    }
+
+    /**
+     *  Check envelope with all filters, before verifying
+     *
+     * @param rMsg - network message
+     * @return first action other than ACCEPT
+     */
+    protected EnvelopeFilter.Action filterMessage(ReliableMessage rMsg) {
+        EnvelopeFilter.Action action;
+        for (EnvelopeFilter item : filters) {
+            action = item.filterMessage(rMsg);
+            if (action != null && action != EnvelopeFilter.Action.ACCEPT) {
+                return action;
+            }
+        }
+        return EnvelopeFilter.Action.ACCEPT;
+    }
+
+    /**
+     *  Keep the message for processing later
+     *
+     * @param rMsg - network message
+     * @return responses
+     */
+    protected List<ReliableMessage> deferMessage(ReliableMessage rMsg) {
+        // TODO: override to save the message into a waiting queue
+        return null;
+    }
+
+    /**
+     *  Deliver the message to another place
+     *
+     * @param rMsg - network message
+     * @return responses
+     */
+    protected List<ReliableMessage> routeMessage(ReliableMessage rMsg) {
+        // TODO: override to deliver the message to its receiver
+        return null;
+    }
+
     //
     //  Processing Message
     //
@@ -69,6 +235,9 @@ public abstract class MessageProcessor extends TwinsHelper implements Processor
         if (rMsg == null) {
             // no valid message received
             return null;
+        } else if (!checkMessageTime(rMsg)) {
+            // stale message
+            return null;
         }
         // 2. process message
         List<ReliableMessage> responses = messenger.processReliableMessage(rMsg);
@@ -90,17 +259,209 @@ public abstract class MessageProcessor extends TwinsHelper implements Processor
         return packages;
     }
 
+    @Override
+    public List<List<byte[]>> processPackages(List<byte[]> packages) {
+        Messenger messenger = getMessenger();
+        assert messenger != null : "messenger not ready";
+        int count = packages.size();
+        List<List<byte[]>> results = new ArrayList<>(count);
+        // 1. deserialize all messages
+        List<ReliableMessage> messages = new ArrayList<>(count);
+        ReliableMessage rMsg;
+        for (byte[] data : packages) {
+            rMsg = messenger.deserializeMessage(data);
+            if (rMsg != null && !checkMessageTime(rMsg)) {
+                // stale message
+                rMsg = null;
+            }
+            messages.add(rMsg);
+            results.add(null);
+        }
+        // 2. process messages in the order received,
+        //    as a message may depend on the ones before it (e.g.: group commands)
+        List<ReliableMessage> responses;
+        for (int index = 0; index < count; ++index) {
+            rMsg = messages.get(index);
+            if (rMsg == null) {
+                // no valid message received
+                continue;
+            }
+            try {
+                responses = messenger.processReliableMessage(rMsg);
+            } catch (RuntimeException e) {
+                results.set(index, onPackageError(packages.get(index), rMsg, e));
+                continue;
+            }
+            // 3. serialize responses
+            results.set(index, serializeMessages(responses));
+        }
+        return results;
+    }
+
+    /**
+     *  Called when failed to process one package in a batch
+     *
+     * @param data  - data package
+     * @param rMsg  - network message
+     * @param error - exception from 'processReliableMessage()'
+     * @return responses
+     */
+    protected List<byte[]> onPackageError(byte[] data, ReliableMessage rMsg, RuntimeException error) {
+        // TODO: override to deliver to the receiver when catch exception "receiver error ..."
+        return null;
+    }
+
+    private List<byte[]> serializeMessages(List<ReliableMessage> responses) {
+        if (responses == null || responses.isEmpty()) {
+            // nothing to respond
+            return null;
+        }
+        Messenger messenger = getMessenger();
+        List<byte[]> packages = new ArrayList<>();
+        byte[] pack;
+        for (ReliableMessage res: responses) {
+            pack = messenger.serializeMessage(res);
+            if (pack == null) {
+                // should not happen
+                continue;
+            }
+            packages.add(pack);
+        }
+        return packages;
+    }
+
     @Override
     public List<ReliableMessage> processReliableMessage(ReliableMessage rMsg) {
         // TODO: override to check broadcast message before calling it
+        List<ReliableMessage> responses = new ArrayList<>();
+        // 0. check envelope, 1. verify message
+        SecureMessage sMsg = checkReliableMessage(rMsg, true, responses);
+        if (sMsg == null) {
+            // dropped, deferred, routed or suspended
+            return responses.isEmpty() ? null : responses;
+        }
+        return processVerifiedMessage(sMsg, rMsg);
+        // TODO: override to deliver to the receiver when catch exception "receiver error ..."
+    }
+
+    /**
+     *  Process message passed the envelope filters,
+     *  call it directly when resuming a suspended message
+     *
+     * @param rMsg - network message
+     * @return responses
+     */
+    public List<ReliableMessage> resumeReliableMessage(ReliableMessage rMsg) {
+        SecureMessage sMsg = checkReliableMessage(rMsg, false, null);
+        if (sMsg == null) {
+            // suspended or verify failed
+            return null;
+        }
+        return processVerifiedMessage(sMsg, rMsg);
+    }
+
+    /**
+     *  Check the message before decrypting:
+     *  envelope filters, sender's meta, then the signature.
+     *  <p>
+     *      Both 'processReliableMessage()' and the staged pipeline
+     *      go through here, override it (instead of 'processReliableMessage()')
+     *      for extra checks before cryptography;
+     *      the asynchronous messenger calls 'checkBeforeVerifying()' and
+     *      'onMessageVerified()' around its own verifying instead.
+     *  </p>
+     *
+     * @param rMsg      - network message
+     * @param filtering - false to skip the envelope filters (resuming)
+     * @param responses - responses of the deferred/routed message
+     * @return verified message; null when the message stops here
+     */
+    public SecureMessage checkReliableMessage(ReliableMessage rMsg, boolean filtering,
+                                              List<ReliableMessage> responses) {
         Messenger messenger = getMessenger();
         assert messenger != null : "messenger not ready";
+        // 0. check envelope before cryptography
+        if (!checkBeforeVerifying(rMsg, filtering, responses)) {
+            // dropped, deferred, routed or suspended
+            return null;
+        }
         // 1. verify message
         SecureMessage sMsg = messenger.verifyMessage(rMsg);
         if (sMsg == null) {
-            // TODO: suspend and waiting for sender's meta if not exists
+            // verify failed
             return null;
         }
+        onMessageVerified(rMsg);
+        return sMsg;
+    }
+
+    /**
+     *  Check the message with envelope filters and sender's meta
+     *
+     * @param rMsg      - network message
+     * @param filtering - false to skip the envelope filters (resuming)
+     * @param responses - responses of the deferred/routed message
+     * @return false when the message stops here
+     */
+    public boolean checkBeforeVerifying(ReliableMessage rMsg, boolean filtering,
+                                        List<ReliableMessage> responses) {
+        if (filtering) {
+            List<ReliableMessage> results;
+            switch (filterMessage(rMsg)) {
+
+                case DROP:
+                    return false;
+
+                case DEFER:
+                    results = deferMessage(rMsg);
+                    if (results != null && responses != null) {
+                        responses.addAll(results);
+                    }
+                    return false;
+
+                case ROUTE:
+                    results = routeMessage(rMsg);
+                    if (results != null && responses != null) {
+                        responses.addAll(results);
+                    }
+                    return false;
+            }
+        }
+        SuspendedMessageQueue queue = suspendedQueue;
+        if (queue != null && !checkSender(rMsg)) {
+            // suspend and waiting for sender's meta
+            queue.suspendMessage(rMsg);
+            if (checkSender(rMsg)) {
+                // the meta was saved before suspended, no one will wake it up,
+                // so resume it (via the queue's delegate) right now
+                queue.resumeMessages(rMsg.getSender());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     *  Called after the message verified, to notify the envelope filters
+     *
+     * @param rMsg - network message
+     */
+    public void onMessageVerified(ReliableMessage rMsg) {
+        for (EnvelopeFilter item : filters) {
+            item.onMessageVerified(rMsg);
+        }
+    }
+
+    /**
+     *  Process the verified message, then sign the responses
+     *
+     * @param sMsg - verified message
+     * @param rMsg - network message
+     * @return responses
+     */
+    protected List<ReliableMessage> processVerifiedMessage(SecureMessage sMsg, ReliableMessage rMsg) {
+        Messenger messenger = getMessenger();
+        assert messenger != null : "messenger not ready";
         // 2. process message
         List<SecureMessage> responses = messenger.processSecureMessage(sMsg, rMsg);
         if (responses == null || responses.isEmpty()) {
@@ -119,7 +480,6 @@ public abstract class MessageProcessor extends TwinsHelper implements Processor
             messages.add(msg);
         }
         return messages;
-        // TODO: override to deliver to the receiver when catch exception "receiver error ..."
     }
 
     @Override
@@ -127,11 +487,20 @@ public abstract class MessageProcessor extends TwinsHelper implements Processor
         Messenger messenger = getMessenger();
         assert messenger != null : "messenger not ready";
         // 1. decrypt message
-        InstantMessage iMsg = messenger.decryptMessage(sMsg);
-        if (iMsg == null) {
-            // cannot decrypt this message, not for you?
-            // delivering message to other receiver?
-            return null;
+        InstantMessage iMsg;
+        if (tryDecrypting) {
+            DecryptResult result = messenger.tryDecryptMessage(sMsg);
+            iMsg = result.getMessage();
+            if (iMsg == null) {
+                return onDecryptError(sMsg, rMsg, result.getFailure());
+            }
+        } else {
+            iMsg = messenger.decryptMessage(sMsg);
+            if (iMsg == null) {
+                // cannot decrypt this message, not for you?
+                // delivering message to other receiver?
+                return null;
+            }
         }
         // 2. process message
         List<InstantMessage> responses = messenger.processInstantMessage(iMsg, rMsg);
@@ -153,6 +522,21 @@ public abstract class MessageProcessor extends TwinsHelper implements Processor
         return messages;
     }
 
+    /**
+     *  Called when failed to decrypt the message (only when try-decrypting)
+     *
+     * @param sMsg   - encrypted message
+     * @param rMsg   - network message
+     * @param reason - failure reason
+     * @return responses
+     */
+    protected List<SecureMessage> onDecryptError(SecureMessage sMsg, ReliableMessage rMsg,
+                                                 DecryptResult.Failure reason) {
+        // TODO: override to deliver the message when 'RECEIVER_ERROR',
+        //       or ask the sender to update visa when 'KEY_NOT_DECRYPTED'
+        return null;
+    }
+
     @Override
     public List<InstantMessage> processInstantMessage(InstantMessage iMsg, ReliableMessage rMsg) {
         Messenger messenger = getMessenger();
@@ -36,6 +36,7 @@ import chat.dim.core.CipherKeyDelegate;
 import chat.dim.core.Packer;
 import chat.dim.core.Processor;
 import chat.dim.core.Transformer;
+import chat.dim.msg.DecryptResult;
 import chat.dim.protocol.Content;
 import chat.dim.protocol.ID;
 import chat.dim.protocol.InstantMessage;
@@ -134,6 +135,12 @@ public abstract class Messenger extends Transformer implements Packer, Processor
         return packer.decryptMessage(sMsg);
     }
 
+    @Override
+    public DecryptResult tryDecryptMessage(SecureMessage sMsg) {
+        Packer packer = getPacker();
+        return packer.tryDecryptMessage(sMsg);
+    }
+
     //
     //  Interfaces for Processing Message
     //
@@ -144,6 +151,12 @@ public abstract class Messenger extends Transformer implements Packer, Processor
         return processor.processPackage(data);
     }
 
+    @Override
+    public List<List<byte[]>> processPackages(List<byte[]> packages) {
+        Processor processor = getProcessor();
+        return processor.processPackages(packages);
+    }
+
     @Override
     public List<ReliableMessage> processReliableMessage(ReliableMessage rMsg) {
         Processor processor = getProcessor();
@@ -0,0 +1,328 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *  Bounded Cache with W-TinyLFU eviction
+ *  <p>
+ *      New entries enter a small LRU window (1%), then compete with the
+ *      main segmented LRU (probation 20%, protected 80%) by their estimated
+ *      frequencies, so one-hit keys cannot flush the popular ones.
+ *  </p>
+ *  <p>
+ *      Reading is lock-free; the policy is updated only when the lock is free,
+ *      so under contention some accesses are not recorded, which is harmless.
+ *  </p>
+ */
+public class BoundedCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int REMOVED = -1;
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        int queue;
+        Node<K, V> prev;
+        Node<K, V> next;
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Queue<K, V> {
+        Node<K, V> head;  // eldest
+        Node<K, V> tail;  // newest
+        int size;
+
+        void add(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size += 1;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size -= 1;
+        }
+
+        void moveToTail(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                add(node);
+            }
+        }
+    }
+
+    private final int maximum;
+    private final int windowMax;
+    private final int protectedMax;
+
+    private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Queue<K, V> window = new Queue<>();
+    private final Queue<K, V> probation = new Queue<>();
+    private final Queue<K, V> protect = new Queue<>();
+
+    // stats
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     *  Create cache
+     *
+     * @param maximum - max entries
+     */
+    public BoundedCache(int maximum) {
+        super();
+        assert maximum > 0 : "cache size error: " + maximum;
+        this.maximum = maximum;
+        this.windowMax = Math.max(1, maximum / 100);
+        this.protectedMax = (maximum - windowMax) * 4 / 5;
+        this.sketch = new FrequencySketch(maximum);
+    }
+
+    public int getMaximum() {
+        return maximum;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    //
+    //  Stats
+    //
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        String clazz = getClass().getName();
+        return "<" + clazz + " size=" + size() + " max=" + maximum
+                + " hits=" + getHitCount() + " misses=" + getMissCount()
+                + " evictions=" + getEvictionCount() + " />";
+    }
+
+    //
+    //  Access
+    //
+
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            if (lock.tryLock()) {
+                try {
+                    sketch.increment(key);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                if (node.queue != REMOVED) {
+                    onAccess(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                node.value = value;
+                onAccess(node);
+                return;
+            }
+            node = new Node<>(key, value);
+            node.queue = WINDOW;
+            window.add(node);
+            data.put(key, node);
+            sketch.increment(key);
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        lock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                unlink(node);
+            }
+            data.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //
+    //  Policy (locked)
+    //
+
+    private Queue<K, V> queueOf(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            case PROTECTED:
+                return protect;
+            default:
+                return null;
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        Queue<K, V> queue = queueOf(node);
+        if (queue != null) {
+            queue.remove(node);
+        }
+        node.queue = REMOVED;
+    }
+
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+
+            case WINDOW:
+                window.moveToTail(node);
+                break;
+
+            case PROBATION:
+                // promote
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protect.add(node);
+                if (protect.size > protectedMax) {
+                    // demote the eldest one
+                    Node<K, V> eldest = protect.head;
+                    protect.remove(eldest);
+                    eldest.queue = PROBATION;
+                    probation.add(eldest);
+                }
+                break;
+
+            case PROTECTED:
+                protect.moveToTail(node);
+                break;
+        }
+    }
+
+    private void evict() {
+        // 1. move overflows from window to probation as candidates
+        Node<K, V> node;
+        while (window.size > windowMax) {
+            node = window.head;
+            window.remove(node);
+            node.queue = PROBATION;
+            probation.add(node);
+        }
+        // 2. candidate (newest in probation) competes with victim (eldest in probation)
+        Node<K, V> victim, candidate;
+        while (data.size() > maximum) {
+            victim = probation.head;
+            candidate = probation.tail;
+            if (victim == null) {
+                // should not happen
+                victim = protect.head != null ? protect.head : window.head;
+            } else if (victim != candidate && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                victim = candidate;
+            }
+            data.remove(victim.key);
+            unlink(victim);
+            evictions.increment();
+        }
+    }
+
+}
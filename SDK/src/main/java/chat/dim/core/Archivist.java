@@ -71,4 +71,23 @@ public interface Archivist {
      */
     List<ID> getLocalUsers();
 
+    /**
+     *  Archivist Observer
+     *  <p>
+     *      Notified after meta/document saved successfully,
+     *      or local users changed
+     *  </p>
+     */
+    interface Observer {
+
+        default void onMetaSaved(Meta meta, ID did) {}
+
+        default void onDocumentSaved(Document document, ID did) {}
+
+        /**
+         *  Called after local users changed (login, logout, switched)
+         */
+        default void onLocalUsersChanged() {}
+    }
+
 }
@@ -0,0 +1,87 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.core;
+
+import java.util.concurrent.CompletableFuture;
+
+import chat.dim.protocol.InstantMessage;
+import chat.dim.protocol.ReliableMessage;
+import chat.dim.protocol.SecureMessage;
+
+/**
+ *  Message Packer (asynchronous)
+ *  <p>
+ *      Same as 'Packer', but returns futures,
+ *      so implementations backed by asynchronous data sources can plug in directly.
+ *  </p>
+ */
+public interface AsyncPacker {
+
+    //
+    //  InstantMessage -> SecureMessage -> ReliableMessage -> Data
+    //
+
+    /**
+     *  Encrypt message content
+     *
+     * @param iMsg - plain message
+     * @return future encrypted message
+     */
+    CompletableFuture<SecureMessage> encryptMessageAsync(InstantMessage iMsg);
+
+    /**
+     *  Sign content data
+     *
+     * @param sMsg - encrypted message
+     * @return future network message
+     */
+    CompletableFuture<ReliableMessage> signMessageAsync(SecureMessage sMsg);
+
+    //
+    //  Data -> ReliableMessage -> SecureMessage -> InstantMessage
+    //
+
+    /**
+     *  Verify encrypted content data
+     *
+     * @param rMsg - network message
+     * @return future encrypted message
+     */
+    CompletableFuture<SecureMessage> verifyMessageAsync(ReliableMessage rMsg);
+
+    /**
+     *  Decrypt message content
+     *
+     * @param sMsg - encrypted message
+     * @return future plain message
+     */
+    CompletableFuture<InstantMessage> decryptMessageAsync(SecureMessage sMsg);
+}
@@ -0,0 +1,91 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.core;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import chat.dim.protocol.Content;
+import chat.dim.protocol.InstantMessage;
+import chat.dim.protocol.ReliableMessage;
+import chat.dim.protocol.SecureMessage;
+
+/**
+ *  Message Processor (asynchronous)
+ *  <p>
+ *      Same as 'Processor', but returns futures.
+ *  </p>
+ */
+public interface AsyncProcessor {
+
+    /**
+     *  Process data package
+     *
+     * @param data - data to be processed
+     * @return future responses
+     */
+    CompletableFuture<List<byte[]>> processPackageAsync(byte[] data);
+
+    /**
+     *  Process network message
+     *
+     * @param rMsg - message to be processed
+     * @return future response messages
+     */
+    CompletableFuture<List<ReliableMessage>> processReliableMessageAsync(ReliableMessage rMsg);
+
+    /**
+     *  Process encrypted message
+     *
+     * @param sMsg - message to be processed
+     * @param rMsg - message received
+     * @return future response messages
+     */
+    CompletableFuture<List<SecureMessage>> processSecureMessageAsync(SecureMessage sMsg, ReliableMessage rMsg);
+
+    /**
+     *  Process plain message
+     *
+     * @param iMsg - message to be processed
+     * @param rMsg - message received
+     * @return future response messages
+     */
+    CompletableFuture<List<InstantMessage>> processInstantMessageAsync(InstantMessage iMsg, ReliableMessage rMsg);
+
+    /**
+     *  Process message content
+     *
+     * @param content - content to be processed
+     * @param rMsg    - message received
+     * @return future response contents
+     */
+    CompletableFuture<List<Content>> processContentAsync(Content content, ReliableMessage rMsg);
+}
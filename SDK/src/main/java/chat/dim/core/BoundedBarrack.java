@@ -0,0 +1,86 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.core;
+
+import chat.dim.cache.BoundedCache;
+import chat.dim.mkm.Group;
+import chat.dim.mkm.User;
+import chat.dim.protocol.ID;
+
+/**
+ *  Bounded Entity Pool
+ *  <p>
+ *      Keeps the most frequently used users/groups within the limits,
+ *      safe for concurrent access.
+ *  </p>
+ */
+public abstract class BoundedBarrack implements Barrack {
+
+    protected final BoundedCache<ID, User> userCache;
+    protected final BoundedCache<ID, Group> groupCache;
+
+    public BoundedBarrack(int maxUsers, int maxGroups) {
+        super();
+        userCache = new BoundedCache<>(maxUsers);
+        groupCache = new BoundedCache<>(maxGroups);
+    }
+
+    public BoundedCache<ID, User> getUserCache() {
+        return userCache;
+    }
+
+    public BoundedCache<ID, Group> getGroupCache() {
+        return groupCache;
+    }
+
+    @Override
+    public void cacheUser(User user) {
+        userCache.put(user.getIdentifier(), user);
+    }
+
+    @Override
+    public void cacheGroup(Group group) {
+        groupCache.put(group.getIdentifier(), group);
+    }
+
+    @Override
+    public User getUser(ID uid) {
+        return userCache.get(uid);
+    }
+
+    @Override
+    public Group getGroup(ID gid) {
+        return groupCache.get(gid);
+    }
+
+    // TODO: override 'createUser()' & 'createGroup()'
+
+}
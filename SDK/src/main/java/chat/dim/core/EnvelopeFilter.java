@@ -0,0 +1,71 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.core;
+
+import chat.dim.protocol.ReliableMessage;
+
+/**
+ *  Envelope Filter
+ *  <p>
+ *      Checks the envelope fields (type, sender, receiver, group, time)
+ *      of a received message before any cryptography runs.
+ *  </p>
+ */
+public interface EnvelopeFilter {
+
+    enum Action {
+        ACCEPT,  // go on verifying & decrypting
+        DROP,    // discard the message
+        DEFER,   // keep the message for processing later
+        ROUTE    // deliver the message to another place (e.g.: forward to the receiver)
+    }
+
+    /**
+     *  Check message envelope
+     *  <p>
+     *      NOTICE: the message is not verified yet, don't trust its content.
+     *  </p>
+     *
+     * @param rMsg - network message
+     * @return action for this message
+     */
+    Action filterMessage(ReliableMessage rMsg);
+
+    /**
+     *  Called after the accepted message passed verifying
+     *
+     * @param rMsg - network message
+     */
+    default void onMessageVerified(ReliableMessage rMsg) {
+        // override to record the message
+    }
+
+}
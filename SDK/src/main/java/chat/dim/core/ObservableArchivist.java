@@ -0,0 +1,106 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.core;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import chat.dim.protocol.Document;
+import chat.dim.protocol.ID;
+import chat.dim.protocol.Meta;
+
+/**
+ *  Observable Archivist
+ *  <p>
+ *      Wraps an archivist to notify observers after meta/document saved,
+ *      or local users changed.
+ *  </p>
+ */
+public class ObservableArchivist implements Archivist {
+
+    private final Archivist archivist;
+
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+
+    public ObservableArchivist(Archivist archivist) {
+        super();
+        this.archivist = archivist;
+    }
+
+    public Archivist getArchivist() {
+        return archivist;
+    }
+
+    public void addObserver(Observer observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    @Override
+    public boolean saveMeta(Meta meta, ID did) {
+        if (!archivist.saveMeta(meta, did)) {
+            return false;
+        }
+        for (Observer item : observers) {
+            item.onMetaSaved(meta, did);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean saveDocument(Document document, ID did) {
+        if (!archivist.saveDocument(document, did)) {
+            return false;
+        }
+        for (Observer item : observers) {
+            item.onDocumentSaved(document, did);
+        }
+        return true;
+    }
+
+    @Override
+    public List<ID> getLocalUsers() {
+        return archivist.getLocalUsers();
+    }
+
+    /**
+     *  Call it after local users changed (login, logout, switched)
+     */
+    public void notifyLocalUsersChanged() {
+        for (Observer item : observers) {
+            item.onLocalUsersChanged();
+        }
+    }
+
+}
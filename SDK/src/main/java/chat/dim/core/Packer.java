@@ -30,6 +30,7 @@
  */
 package chat.dim.core;
 
+import chat.dim.msg.DecryptResult;
 import chat.dim.protocol.InstantMessage;
 import chat.dim.protocol.ReliableMessage;
 import chat.dim.protocol.SecureMessage;
@@ -94,4 +95,19 @@ public interface Packer {
      * @return plain message
      */
     InstantMessage decryptMessage(SecureMessage sMsg);
+
+    /**
+     *  Decrypt message content without throwing for normal failures,
+     *  override it to avoid building exceptions on hot paths
+     *
+     * @param sMsg - encrypted message
+     * @return plain message, or failure reason
+     */
+    default DecryptResult tryDecryptMessage(SecureMessage sMsg) {
+        InstantMessage iMsg = decryptMessage(sMsg);
+        if (iMsg == null) {
+            return DecryptResult.failure(DecryptResult.Failure.UNKNOWN);
+        }
+        return DecryptResult.success(iMsg);
+    }
 }
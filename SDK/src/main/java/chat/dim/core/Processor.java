@@ -30,6 +30,7 @@
  */
 package chat.dim.core;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import chat.dim.protocol.Content;
@@ -50,6 +51,20 @@ public interface Processor {
      */
     List<byte[]> processPackage(byte[] data);
 
+    /**
+     *  Process data packages in batch
+     *
+     * @param packages - data to be processed
+     * @return responses for each package (null when nothing to respond)
+     */
+    default List<List<byte[]>> processPackages(List<byte[]> packages) {
+        List<List<byte[]>> results = new ArrayList<>(packages.size());
+        for (byte[] data : packages) {
+            results.add(processPackage(data));
+        }
+        return results;
+    }
+
     /**
      *  Process network message
      *
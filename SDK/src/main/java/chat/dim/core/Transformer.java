@@ -31,10 +31,13 @@
 package chat.dim.core;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import chat.dim.crypto.EncryptedBundle;
+import chat.dim.crypto.SharedVisaAgent;
+import chat.dim.crypto.VisaAgent;
 import chat.dim.mkm.Entity;
 import chat.dim.mkm.User;
 import chat.dim.msg.BaseMessage;
@@ -42,8 +45,10 @@ import chat.dim.msg.InstantMessageDelegate;
 import chat.dim.msg.ReliableMessageDelegate;
 import chat.dim.msg.SecureMessageDelegate;
 import chat.dim.protocol.Content;
+import chat.dim.protocol.Document;
 import chat.dim.protocol.ID;
 import chat.dim.protocol.InstantMessage;
+import chat.dim.protocol.Meta;
 import chat.dim.protocol.ReliableMessage;
 import chat.dim.protocol.SecureMessage;
 import chat.dim.protocol.SymmetricKey;
@@ -139,6 +144,35 @@ public abstract class Transformer implements InstantMessageDelegate, SecureMessa
         return contact.encryptBundle(data);
     }
 
+    @Override
+    public Map<ID, EncryptedBundle> encryptKeys(byte[] data, List<ID> receivers, InstantMessage iMsg) {
+        assert !BaseMessage.isBroadcast(iMsg) : "broadcast message has no key: " + iMsg;
+        Entity.DataSource dataSource = getBulkDataSource();
+        if (dataSource == null) {
+            // encrypt one by one with 'encryptKey()'
+            return InstantMessageDelegate.super.encryptKeys(data, receivers, iMsg);
+        }
+        // fetch metas & visas of all receivers in one batch
+        Map<ID, Meta> metas = dataSource.getMetas(receivers);
+        Map<ID, List<Document>> documents = dataSource.getDocuments(receivers);
+        VisaAgent agent = SharedVisaAgent.visaAgent;
+        return agent.encryptBundles(data, metas, documents);
+    }
+
+    /**
+     *  Data source for fetching metas &amp; visas of all receivers in one batch
+     *  when encrypting the message key, e.g.: the 'CachingDataSource' of entities.
+     *  <p>
+     *      NOTICE: with it, 'encryptKeys()' encrypts by the visa agent directly,
+     *      so overrides of 'encryptKey()' and 'User.encryptBundle()' are skipped.
+     *  </p>
+     *
+     * @return null to encrypt one by one (default)
+     */
+    protected Entity.DataSource getBulkDataSource() {
+        return null;
+    }
+
     @Override
     public Map<String, Object> encodeKey(EncryptedBundle bundle, ID receiver, InstantMessage iMsg) {
         assert !BaseMessage.isBroadcast(iMsg) : "broadcast message has no key: " + iMsg;
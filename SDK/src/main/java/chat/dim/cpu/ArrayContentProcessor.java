@@ -35,14 +35,30 @@ import java.util.List;
 
 import chat.dim.Facebook;
 import chat.dim.Messenger;
+import chat.dim.exec.ParallelTasks;
 import chat.dim.protocol.ArrayContent;
 import chat.dim.protocol.Content;
 import chat.dim.protocol.ReliableMessage;
 
 public class ArrayContentProcessor extends BaseContentProcessor {
 
+    // parallel mode (opt-in)
+    private final ParallelTasks parallel;
+
     public ArrayContentProcessor(Facebook facebook, Messenger messenger) {
+        this(facebook, messenger, null);
+    }
+
+    /**
+     *  Create processor with parallel mode
+     *
+     * @param parallel - runner for items, with concurrency cap &amp; time budget;
+     *                   null to process items one by one;
+     *                   NOTICE: the CPU factory must be thread-safe for parallel mode
+     */
+    public ArrayContentProcessor(Facebook facebook, Messenger messenger, ParallelTasks parallel) {
         super(facebook, messenger);
+        this.parallel = parallel;
     }
 
     @Override
@@ -51,11 +67,19 @@ public class ArrayContentProcessor extends BaseContentProcessor {
         List<Content> array = ((ArrayContent) content).getContents();
         // call messenger to process it
         Messenger messenger = getMessenger();
+        List<List<Content>> outputs;
+        if (parallel == null || array.size() < 2) {
+            outputs = new ArrayList<>(array.size());
+            for (Content item : array) {
+                outputs.add(messenger.processContent(item, rMsg));
+            }
+        } else {
+            // items failed or timeout will get null
+            outputs = parallel.map(array, item -> messenger.processContent(item, rMsg));
+        }
         List<Content> responses = new ArrayList<>();
         Content res;
-        List<Content> results;
-        for (Content item : array) {
-            results = messenger.processContent(item, rMsg);
+        for (List<Content> results : outputs) {
             if (results == null) {
                 res = ArrayContent.create(new ArrayList<>());
             } else if (results.size() == 1) {
@@ -31,18 +31,39 @@
 package chat.dim.cpu;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import chat.dim.Facebook;
 import chat.dim.Messenger;
+import chat.dim.core.CipherKeyDelegate;
+import chat.dim.exec.ParallelTasks;
 import chat.dim.protocol.Content;
 import chat.dim.protocol.ForwardContent;
+import chat.dim.protocol.ID;
 import chat.dim.protocol.ReliableMessage;
 
 public class ForwardContentProcessor extends BaseContentProcessor {
 
+    // parallel mode (opt-in)
+    private final ParallelTasks parallel;
+
     public ForwardContentProcessor(Facebook facebook, Messenger messenger) {
+        this(facebook, messenger, null);
+    }
+
+    /**
+     *  Create processor with parallel mode
+     *
+     * @param parallel - runner for conversations in secrets, with concurrency cap &amp; time budget;
+     *                   null to process secrets one by one;
+     *                   NOTICE: the CPU factory must be thread-safe for parallel mode
+     */
+    public ForwardContentProcessor(Facebook facebook, Messenger messenger, ParallelTasks parallel) {
         super(facebook, messenger);
+        this.parallel = parallel;
     }
 
     @Override
@@ -51,11 +72,42 @@ public class ForwardContentProcessor extends BaseContentProcessor {
         List<ReliableMessage> secrets = ((ForwardContent) content).getSecrets();
         // call messenger to process it
         Messenger messenger = getMessenger();
+        List<List<ReliableMessage>> outputs = new ArrayList<>(secrets.size());
+        List<List<Integer>> conversations = parallel == null ? null : groupConversations(secrets);
+        if (conversations == null || conversations.size() < 2) {
+            for (ReliableMessage item : secrets) {
+                outputs.add(messenger.processReliableMessage(item));
+            }
+        } else {
+            // secrets in the same conversation are processed in order,
+            // different conversations are processed in parallel;
+            // conversations failed or timeout will get null
+            List<List<List<ReliableMessage>>> results = parallel.map(conversations, indexes -> {
+                List<List<ReliableMessage>> array = new ArrayList<>(indexes.size());
+                for (int index : indexes) {
+                    array.add(messenger.processReliableMessage(secrets.get(index)));
+                }
+                return array;
+            });
+            for (int i = 0; i < secrets.size(); ++i) {
+                outputs.add(null);
+            }
+            List<Integer> indexes;
+            List<List<ReliableMessage>> array;
+            for (int i = 0; i < conversations.size(); ++i) {
+                indexes = conversations.get(i);
+                array = results.get(i);
+                if (array == null) {
+                    continue;
+                }
+                for (int j = 0; j < indexes.size(); ++j) {
+                    outputs.set(indexes.get(j), array.get(j));
+                }
+            }
+        }
         List<Content> responses = new ArrayList<>();
         Content res;
-        List<ReliableMessage> results;
-        for (ReliableMessage item : secrets) {
-            results = messenger.processReliableMessage(item);
+        for (List<ReliableMessage> results : outputs) {
             if (results == null) {
                res = ForwardContent.create(new ArrayList<>());
             } else if (results.size() == 1) {
@@ -67,4 +119,22 @@ public class ForwardContentProcessor extends BaseContentProcessor {
         }
         return responses;
     }
+
+    /**
+     *  Group secrets by conversation (sender, destination)
+     *
+     * @param secrets - forwarded messages
+     * @return indexes of secrets, one list per conversation
+     */
+    protected List<List<Integer>> groupConversations(List<ReliableMessage> secrets) {
+        Map<List<ID>, List<Integer>> groups = new LinkedHashMap<>();
+        ReliableMessage item;
+        List<ID> key;
+        for (int i = 0; i < secrets.size(); ++i) {
+            item = secrets.get(i);
+            key = Arrays.asList(item.getSender(), CipherKeyDelegate.getDestination(item));
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        return new ArrayList<>(groups.values());
+    }
 }
@@ -30,10 +30,14 @@
  */
 package chat.dim.crypto;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import chat.dim.protocol.Document;
+import chat.dim.protocol.ID;
 import chat.dim.protocol.Meta;
 import chat.dim.protocol.VerifyKey;
 
@@ -49,6 +53,33 @@ public interface VisaAgent {
      */
     EncryptedBundle encryptBundle(byte[] plaintext, Meta meta, List<Document> documents);
 
+    /**
+     *  Encrypt plaintext for many users
+     *
+     * @param plaintext - key data
+     * @param metas     - ID => meta
+     * @param documents - ID => visa documents
+     * @return ID => encrypted data with terminals, failed ones not included
+     */
+    default Map<ID, EncryptedBundle> encryptBundles(byte[] plaintext, Map<ID, Meta> metas,
+                                                    Map<ID, List<Document>> documents) {
+        Map<ID, EncryptedBundle> bundles = new LinkedHashMap<>();
+        EncryptedBundle bundle;
+        List<Document> docs;
+        for (Map.Entry<ID, Meta> entry : metas.entrySet()) {
+            docs = documents.get(entry.getKey());
+            if (docs == null) {
+                // visa not found, try meta key
+                docs = Collections.emptyList();
+            }
+            bundle = encryptBundle(plaintext, entry.getValue(), docs);
+            if (bundle != null && !bundle.isEmpty()) {
+                bundles.put(entry.getKey(), bundle);
+            }
+        }
+        return bundles;
+    }
+
     /**
      *  Get all verify keys from documents and meta
      *
@@ -0,0 +1,156 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.dkd;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chat.dim.protocol.Command;
+import chat.dim.protocol.Content;
+import chat.dim.protocol.group.GroupCommand;
+
+
+/**
+ *  Thread-safe ContentProcessor Factory
+ *  <p>
+ *      Same dispatching as 'ContentProcessorFactory', but safe for calling
+ *      'processContent()' from many threads:
+ *      the read path is a lock-free lookup, and each CPU is created only once
+ *      for its content type / command name.
+ *      Unsupported types/commands are cached as misses too (up to a limit),
+ *      so they are also answered without locking next time.
+ *      Call 'preload()' to build the dispatch tables before serving.
+ *  </p>
+ */
+public final class ConcurrentContentProcessorFactory implements ContentProcessor.Factory {
+
+    private final ConcurrentMap<String, ContentProcessor> contentProcessors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ContentProcessor> commandProcessors = new ConcurrentHashMap<>();
+
+    private final ContentProcessor.Creator creator;
+
+    // placeholder for unsupported types/commands
+    private static final ContentProcessor NOT_SUPPORTED = (content, rMsg) -> null;
+
+    // max unsupported types/commands to be cached,
+    // so random types won't grow the tables without limit
+    private static final int MAX_MISSES = 256;
+
+    private final AtomicInteger misses = new AtomicInteger(0);
+
+    public ConcurrentContentProcessorFactory(ContentProcessor.Creator creator) {
+        super();
+        this.creator = creator;
+    }
+
+    /**
+     *  Create CPUs for content types ahead
+     *
+     * @param msgTypes - content types
+     */
+    public void preload(String... msgTypes) {
+        for (String type : msgTypes) {
+            getContentProcessor(type);
+        }
+    }
+
+    /**
+     *  Create CPUs for commands ahead
+     *
+     * @param msgType  - content type of commands
+     * @param cmdNames - command names
+     */
+    public void preloadCommands(String msgType, String... cmdNames) {
+        for (String cmd : cmdNames) {
+            getCommandProcessor(msgType, cmd);
+        }
+    }
+
+    @Override
+    public ContentProcessor getContentProcessor(Content content) {
+        ContentProcessor cpu;
+        String msgType = content.getType();
+        if (content instanceof Command) {
+            String cmd = ((Command) content).getCmd();
+            // assert cmd != null && !cmd.isEmpty() : "command name error: " + cmd;
+            cpu = getCommandProcessor(msgType, cmd);
+            if (cpu != null) {
+                return cpu;
+            } else if (content instanceof GroupCommand/* || content.containsKey("group")*/) {
+                // assert !name.equals("group") : "command name error: " + content;
+                cpu = getCommandProcessor(msgType, "group");
+                if (cpu != null) {
+                    return cpu;
+                }
+            }
+        }
+        // content processor
+        return getContentProcessor(msgType);
+    }
+
+    @Override
+    public ContentProcessor getContentProcessor(String msgType) {
+        if (msgType == null) {
+            assert false : "content type should not be empty";
+            return null;
+        }
+        ContentProcessor cpu = contentProcessors.get(msgType);
+        if (cpu == null) {
+            cpu = contentProcessors.computeIfAbsent(msgType, type -> orNotSupported(creator.createContentProcessor(type)));
+        }
+        return cpu == NOT_SUPPORTED ? null : cpu;
+    }
+
+    private ContentProcessor getCommandProcessor(String msgType, String cmdName) {
+        if (cmdName == null) {
+            assert false : "command name should not be empty";
+            return null;
+        }
+        ContentProcessor cpu = commandProcessors.get(cmdName);
+        if (cpu == null) {
+            cpu = commandProcessors.computeIfAbsent(cmdName,
+                    name -> orNotSupported(creator.createCommandProcessor(msgType, name)));
+        }
+        return cpu == NOT_SUPPORTED ? null : cpu;
+    }
+
+    // replace unsupported result with placeholder, null (not cached) when too many
+    private ContentProcessor orNotSupported(ContentProcessor cpu) {
+        if (cpu != null) {
+            return cpu;
+        } else if (misses.incrementAndGet() > MAX_MISSES) {
+            misses.decrementAndGet();
+            return null;
+        }
+        return NOT_SUPPORTED;
+    }
+}
@@ -0,0 +1,306 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import chat.dim.MessageProcessor;
+import chat.dim.core.CipherKeyDelegate;
+import chat.dim.core.Processor;
+import chat.dim.protocol.ID;
+import chat.dim.protocol.ReliableMessage;
+
+/**
+ *  Conversation Executor
+ *  <p>
+ *      Messages in one conversation (sender -> receiver, or sender -> group)
+ *      must be processed in order, but different conversations can run in parallel;
+ *      so each message is routed to a shard by (sender, destination),
+ *      and every shard runs its messages one by one on its own thread.
+ *  </p>
+ *  <p>
+ *      NOTICE: shards process messages at the same time,
+ *      so the processor's CPU factory must be thread-safe,
+ *      e.g.: 'ConcurrentContentProcessorFactory' (see 'MessageProcessor.isThreadSafe()').
+ *  </p>
+ */
+public class ConversationExecutor {
+
+    /**
+     *  Executor Callback
+     */
+    public interface Callback {
+
+        /**
+         *  Called when the message finished
+         *
+         * @param rMsg      - received message
+         * @param responses - response messages; null when nothing to respond
+         */
+        void onComplete(ReliableMessage rMsg, List<ReliableMessage> responses);
+    }
+
+    private final Processor processor;
+    private final List<Shard> shards;
+
+    /**
+     *  Create executor with one shard per core
+     *
+     * @param processor - message processor
+     * @param capacity  - max messages waiting in each shard
+     */
+    public ConversationExecutor(Processor processor, int capacity) {
+        this(processor, Runtime.getRuntime().availableProcessors(), capacity);
+    }
+
+    public ConversationExecutor(Processor processor, int shardCount, int capacity) {
+        super();
+        assert shardCount > 0 && capacity > 0 : "shard params error: " + shardCount + ", " + capacity;
+        assert !(processor instanceof MessageProcessor) || ((MessageProcessor) processor).isThreadSafe()
+                : "CPU factory not thread-safe: " + processor;
+        this.processor = processor;
+        ThreadFactory factory = PackageExecutors.newThreadFactory("conversation");
+        List<Shard> array = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; ++i) {
+            array.add(new Shard(capacity, factory));
+        }
+        shards = array;
+    }
+
+    protected Processor getProcessor() {
+        return processor;
+    }
+
+    public void start() {
+        for (Shard shard : shards) {
+            shard.start();
+        }
+    }
+
+    /**
+     *  Stop all shards, the messages still waiting in them
+     *  will be completed with null responses
+     */
+    public void stop() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+        for (Shard shard : shards) {
+            for (Task task : shard.drain()) {
+                task.cancel();
+            }
+        }
+    }
+
+    /**
+     *  Get shard index for the message
+     *
+     * @param rMsg - received message
+     * @return shard index
+     */
+    public int getShardIndex(ReliableMessage rMsg) {
+        int hash = hashConversation(rMsg);
+        // spread the high bits
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash, shards.size());
+    }
+
+    /**
+     *  Get hash code of the message's conversation (sender, destination)
+     *
+     * @param rMsg - received message
+     * @return conversation hash
+     */
+    public static int hashConversation(ReliableMessage rMsg) {
+        ID sender = rMsg.getSender();
+        ID target = CipherKeyDelegate.getDestination(rMsg);
+        return sender.hashCode() * 31 + target.hashCode();
+    }
+
+    /**
+     *  Append message to its conversation shard, return immediately
+     *
+     * @param rMsg     - received message
+     * @param callback - for responses
+     * @return false on shard full
+     */
+    public boolean offer(ReliableMessage rMsg, Callback callback) {
+        Shard shard = shards.get(getShardIndex(rMsg));
+        return shard.queue.offer(new Task(rMsg, callback, newTask(rMsg, callback)));
+    }
+
+    /**
+     *  Append message to its conversation shard, waiting for space
+     *
+     * @param rMsg     - received message
+     * @param callback - for responses
+     */
+    public void put(ReliableMessage rMsg, Callback callback) throws InterruptedException {
+        Shard shard = shards.get(getShardIndex(rMsg));
+        shard.queue.put(new Task(rMsg, callback, newTask(rMsg, callback)));
+    }
+
+    protected Runnable newTask(ReliableMessage rMsg, Callback callback) {
+        return () -> {
+            List<ReliableMessage> responses;
+            try {
+                responses = processor.processReliableMessage(rMsg);
+            } catch (RuntimeException e) {
+                responses = null;
+            }
+            callback.onComplete(rMsg, responses);
+        };
+    }
+
+    //
+    //  Metrics
+    //
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     *  Get count of messages waiting in each shard
+     *
+     * @return backlogs
+     */
+    public int[] getBacklogs() {
+        int[] backlogs = new int[shards.size()];
+        for (int i = 0; i < backlogs.length; ++i) {
+            backlogs[i] = shards.get(i).queue.size();
+        }
+        return backlogs;
+    }
+
+    /**
+     *  Queued message with its callback
+     */
+    private static class Task {
+
+        final ReliableMessage rMsg;
+        final Callback callback;
+        final Runnable runner;
+
+        Task(ReliableMessage rMsg, Callback callback, Runnable runner) {
+            super();
+            this.rMsg = rMsg;
+            this.callback = callback;
+            this.runner = runner;
+        }
+
+        /**
+         *  Complete the message without processing
+         */
+        void cancel() {
+            try {
+                callback.onComplete(rMsg, null);
+            } catch (RuntimeException e) {
+                // one failed callback must not stop the others
+            }
+        }
+    }
+
+    /**
+     *  Single worker with bounded queue
+     */
+    private static class Shard implements Runnable {
+
+        final BlockingQueue<Task> queue;
+        private final ThreadFactory factory;
+
+        private Thread thread = null;
+        private volatile boolean running = false;
+
+        Shard(int capacity, ThreadFactory factory) {
+            super();
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.factory = factory;
+        }
+
+        synchronized void start() {
+            if (running) {
+                return;
+            }
+            running = true;
+            thread = factory.newThread(this);
+            thread.start();
+        }
+
+        /**
+         *  Stop the worker and wait for it to exit,
+         *  tasks still waiting in the queue can be taken by 'drain()'
+         */
+        synchronized void stop() {
+            running = false;
+            if (thread == null) {
+                return;
+            }
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+
+        List<Task> drain() {
+            List<Task> tasks = new ArrayList<>();
+            queue.drainTo(tasks);
+            return tasks;
+        }
+
+        @Override
+        public void run() {
+            Task task;
+            while (running) {
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    // stopping
+                    break;
+                }
+                try {
+                    task.runner.run();
+                } catch (RuntimeException e) {
+                    // one failed task (or callback) must not stop
+                    // the other messages of this shard
+                }
+            }
+        }
+    }
+
+}
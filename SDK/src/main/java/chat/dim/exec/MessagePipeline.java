@@ -0,0 +1,442 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import chat.dim.MessageProcessor;
+import chat.dim.Messenger;
+import chat.dim.protocol.ReliableMessage;
+import chat.dim.protocol.SecureMessage;
+
+/**
+ *  Staged Message Pipeline
+ *  <p>
+ *      Splits 'Processor.processPackage()' into stages:
+ *  </p>
+ *
+ *  <pre>
+ *      deserialize -> verify -> process -> sign -> serialize
+ *  </pre>
+ *
+ *  <p>
+ *      Each stage has its own bounded queue and worker threads sized to its cost,
+ *      and hands off to the next stage in batches.
+ *      When a stage is full, the previous stage blocks, until the first stage
+ *      refuses new packages; 'getBacklogs()' shows where the load is.
+ *  </p>
+ *  <p>
+ *      The stages go through the same checks as 'processPackage()':
+ *      time window, envelope filters and suspending in 'checkReliableMessage()',
+ *      then 'processSecureMessage()' (decrypt, process, encrypt) of the messenger;
+ *      only overriding 'processReliableMessage()' itself is bypassed here.
+ *  </p>
+ *  <p>
+ *      Packages leave the deserialize stage in the order they came in,
+ *      and the stages after it are partitioned by conversation (sender, destination),
+ *      so messages in one conversation are verified and processed in order,
+ *      while different conversations run in parallel.
+ *  </p>
+ *  <p>
+ *      NOTICE: messages are processed from many threads at the same time,
+ *      so the processor's CPU factory must be thread-safe,
+ *      e.g.: 'ConcurrentContentProcessorFactory' (see 'MessageProcessor.isThreadSafe()').
+ *  </p>
+ */
+public class MessagePipeline {
+
+    public static final String DESERIALIZE = "deserialize";
+    public static final String VERIFY      = "verify";
+    public static final String PROCESS     = "process";
+    public static final String SIGN        = "sign";
+    public static final String SERIALIZE   = "serialize";
+
+    /**
+     *  Pipeline Callback
+     */
+    public interface Callback {
+
+        /**
+         *  Called once when the package finished (or dropped) by the pipeline
+         *
+         * @param data      - received package
+         * @param responses - response packages; null when nothing to respond
+         */
+        void onComplete(byte[] data, List<byte[]> responses);
+    }
+
+    /**
+     *  Package context passed through stages
+     */
+    protected static class Job {
+
+        public final byte[] data;
+        public final Callback callback;
+
+        // arrival order
+        public final long sequence;
+
+        public ReliableMessage rMsg = null;
+        public SecureMessage sMsg = null;
+
+        public List<SecureMessage> secureResponses = null;
+        public List<ReliableMessage> reliableResponses = null;
+
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        public Job(byte[] data, Callback callback, long sequence) {
+            super();
+            this.data = data;
+            this.callback = callback;
+            this.sequence = sequence;
+        }
+
+        public boolean isFinished() {
+            return finished.get();
+        }
+
+        public void finish(List<byte[]> responses) {
+            if (finished.compareAndSet(false, true)) {
+                callback.onComplete(data, responses);
+            }
+        }
+    }
+
+    private final Messenger messenger;
+    private final MessageProcessor processor;
+
+    private final List<PipelineStage<Job>> stages = new ArrayList<>();
+
+    // arrival order of packages
+    private final Object inputLock = new Object();
+    private long inputSequence = 0;
+
+    // packages deserialized, waiting for the ones came before
+    private final Object outputLock = new Object();
+    private final Map<Long, Job> arrivals = new HashMap<>();
+    private long outputSequence = 0;
+
+    public MessagePipeline(Messenger transceiver, MessageProcessor messageProcessor) {
+        super();
+        assert messageProcessor.isThreadSafe() : "CPU factory not thread-safe: " + messageProcessor;
+        messenger = transceiver;
+        processor = messageProcessor;
+        // build stages
+        addStage(DESERIALIZE, job -> {
+            try {
+                if (!deserialize(job)) {
+                    job.finish(null);
+                }
+            } catch (RuntimeException e) {
+                job.finish(null);
+            }
+            // pass all packages (finished ones too) for keeping the arrival order
+            return true;
+        }, null);
+        PipelineStage.Partitioner<Job> conversation = job -> ConversationExecutor.hashConversation(job.rMsg);
+        addStage(VERIFY, this::verify, conversation);
+        addStage(PROCESS, this::process, conversation);
+        addStage(SIGN, this::sign, conversation);
+        addStage(SERIALIZE, this::serialize, conversation);
+        // link stages, the first one hands off in arrival order
+        PipelineStage<Job> second = stages.get(1);
+        stages.get(0).setOutput(batch -> reorder(batch, second));
+        for (int i = 2; i < stages.size(); ++i) {
+            PipelineStage<Job> next = stages.get(i);
+            stages.get(i - 1).setOutput(batch -> handOff(batch, next));
+        }
+    }
+
+    private void addStage(String name, PipelineStage.Handler<Job> handler,
+                          PipelineStage.Partitioner<Job> partitioner) {
+        stages.add(createStage(name, getCapacity(name), getWorkers(name), getBatchSize(name),
+                handler, partitioner));
+    }
+
+    protected PipelineStage<Job> createStage(String name, int capacity, int workers, int batchSize,
+                                             PipelineStage.Handler<Job> handler,
+                                             PipelineStage.Partitioner<Job> partitioner) {
+        return new PipelineStage<>(name, capacity, workers, batchSize, job -> {
+            try {
+                return handler.handle(job);
+            } catch (RuntimeException e) {
+                // failed to handle this package, finish it here
+                // (no effect if it's the callback that failed)
+                job.finish(null);
+                return false;
+            }
+        }, partitioner);
+    }
+
+    // hand off the deserialized packages in arrival order
+    private void reorder(List<Job> batch, PipelineStage<Job> next) throws InterruptedException {
+        synchronized (outputLock) {
+            for (Job job : batch) {
+                arrivals.put(job.sequence, job);
+            }
+            List<Job> ready = new ArrayList<>();
+            Job job;
+            while ((job = arrivals.remove(outputSequence)) != null) {
+                ++outputSequence;
+                if (!job.isFinished()) {
+                    ready.add(job);
+                }
+            }
+            // blocking here also holds the other deserializing workers,
+            // as the next stage is full
+            handOff(ready, next);
+        }
+    }
+
+    private static void handOff(List<Job> batch, PipelineStage<Job> next) throws InterruptedException {
+        int index = 0;
+        try {
+            for (; index < batch.size(); ++index) {
+                next.put(batch.get(index));
+            }
+        } catch (InterruptedException e) {
+            // stopping, finish the packages not handed off
+            for (; index < batch.size(); ++index) {
+                batch.get(index).finish(null);
+            }
+            throw e;
+        }
+    }
+
+    //
+    //  Stage sizing (override for customizing)
+    //
+
+    protected int getCapacity(String stage) {
+        return 1024;
+    }
+
+    protected int getWorkers(String stage) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        switch (stage) {
+
+            // asymmetric crypto
+            case VERIFY:
+            case SIGN:
+                return cores;
+
+            // decrypt, application logic (may wait for storage), encrypt
+            case PROCESS:
+                return cores;
+
+            // JsON
+            default:
+                return Math.max(1, cores / 2);
+        }
+    }
+
+    protected int getBatchSize(String stage) {
+        return 32;
+    }
+
+    //
+    //  Running
+    //
+
+    public void start() {
+        for (PipelineStage<Job> stage : stages) {
+            stage.start();
+        }
+    }
+
+    /**
+     *  Stop all stages, packages still waiting are finished without responses
+     */
+    public void stop() {
+        for (PipelineStage<Job> stage : stages) {
+            stage.stop();
+        }
+        List<Job> waiting = stages.get(0).drain();
+        for (PipelineStage<Job> stage : stages) {
+            for (Job job : stage.drain()) {
+                job.finish(null);
+            }
+        }
+        synchronized (outputLock) {
+            // skip the packages not deserialized, and the ones waiting for them
+            for (Job job : waiting) {
+                arrivals.put(job.sequence, job);
+            }
+            Job job;
+            while ((job = arrivals.remove(outputSequence)) != null) {
+                ++outputSequence;
+                job.finish(null);
+            }
+        }
+    }
+
+    /**
+     *  Push a received package into the pipeline
+     *
+     * @param data     - data package
+     * @param callback - for responses
+     * @return false on pipeline full
+     */
+    public boolean offer(byte[] data, Callback callback) {
+        synchronized (inputLock) {
+            if (!stages.get(0).offer(new Job(data, callback, inputSequence))) {
+                return false;
+            }
+            ++inputSequence;
+            return true;
+        }
+    }
+
+    /**
+     *  Push a received package into the pipeline, waiting for space
+     *
+     * @param data     - data package
+     * @param callback - for responses
+     */
+    public void put(byte[] data, Callback callback) throws InterruptedException {
+        synchronized (inputLock) {
+            stages.get(0).put(new Job(data, callback, inputSequence));
+            ++inputSequence;
+        }
+    }
+
+    //
+    //  Metrics
+    //
+
+    /**
+     *  Get count of packages waiting in each stage
+     *
+     * @return stage name => backlog
+     */
+    public Map<String, Integer> getBacklogs() {
+        Map<String, Integer> backlogs = new LinkedHashMap<>();
+        for (PipelineStage<Job> stage : stages) {
+            backlogs.put(stage.getName(), stage.getBacklog());
+        }
+        return backlogs;
+    }
+
+    public List<PipelineStage<?>> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    //
+    //  Stage Handlers
+    //
+
+    // 1. data -> ReliableMessage
+    protected boolean deserialize(Job job) {
+        job.rMsg = messenger.deserializeMessage(job.data);
+        if (job.rMsg == null) {
+            // no valid message received
+            job.finish(null);
+            return false;
+        } else if (!processor.checkMessageTime(job.rMsg)) {
+            // stale message
+            job.finish(null);
+            return false;
+        }
+        return true;
+    }
+
+    // 2. ReliableMessage -> SecureMessage
+    protected boolean verify(Job job) {
+        List<ReliableMessage> responses = new ArrayList<>();
+        job.sMsg = processor.checkReliableMessage(job.rMsg, true, responses);
+        if (job.sMsg == null) {
+            // dropped, deferred, routed or suspended
+            job.finish(serializeMessages(responses));
+            return false;
+        }
+        return true;
+    }
+
+    // 3. SecureMessage -> responses (decrypt, process, encrypt)
+    protected boolean process(Job job) {
+        List<SecureMessage> responses = messenger.processSecureMessage(job.sMsg, job.rMsg);
+        if (responses == null || responses.isEmpty()) {
+            // nothing to respond
+            job.finish(null);
+            return false;
+        }
+        job.secureResponses = responses;
+        return true;
+    }
+
+    // 4. SecureMessage -> ReliableMessage
+    protected boolean sign(Job job) {
+        List<ReliableMessage> messages = new ArrayList<>();
+        ReliableMessage msg;
+        for (SecureMessage res : job.secureResponses) {
+            msg = messenger.signMessage(res);
+            if (msg == null) {
+                // should not happen
+                continue;
+            }
+            messages.add(msg);
+        }
+        if (messages.isEmpty()) {
+            job.finish(null);
+            return false;
+        }
+        job.reliableResponses = messages;
+        return true;
+    }
+
+    // 5. ReliableMessage -> data
+    protected boolean serialize(Job job) {
+        job.finish(serializeMessages(job.reliableResponses));
+        // last stage
+        return true;
+    }
+
+    private List<byte[]> serializeMessages(List<ReliableMessage> responses) {
+        List<byte[]> packages = new ArrayList<>();
+        byte[] pack;
+        for (ReliableMessage res : responses) {
+            pack = messenger.serializeMessage(res);
+            if (pack == null) {
+                // should not happen
+                continue;
+            }
+            packages.add(pack);
+        }
+        return packages.isEmpty() ? null : packages;
+    }
+
+}
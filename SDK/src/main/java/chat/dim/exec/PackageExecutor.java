@@ -0,0 +1,106 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import chat.dim.core.Processor;
+
+/**
+ *  Package Executor
+ *  <p>
+ *      Runs 'Processor.processPackage()' for each received package
+ *      on the executor from 'PackageExecutors' (virtual threads on Java 21+).
+ *  </p>
+ */
+public class PackageExecutor {
+
+    private final Processor processor;
+    private final ExecutorService executor;
+
+    public PackageExecutor(Processor processor) {
+        this(processor, PackageExecutors.newPackageExecutor("package"));
+    }
+
+    public PackageExecutor(Processor processor, ExecutorService executor) {
+        super();
+        this.processor = processor;
+        this.executor = executor;
+    }
+
+    protected Processor getProcessor() {
+        return processor;
+    }
+
+    protected ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     *  Process the package in background
+     *
+     * @param data - received package
+     * @return future responses
+     */
+    public Future<List<byte[]>> submit(byte[] data) {
+        return executor.submit(() -> processor.processPackage(data));
+    }
+
+    /**
+     *  Process the package in background
+     *
+     * @param data     - received package
+     * @param callback - for responses
+     */
+    public void execute(byte[] data, MessagePipeline.Callback callback) {
+        executor.execute(() -> {
+            List<byte[]> responses;
+            try {
+                responses = processor.processPackage(data);
+            } catch (RuntimeException e) {
+                responses = null;
+            }
+            callback.onComplete(data, responses);
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+}
@@ -0,0 +1,323 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import chat.dim.core.Processor;
+
+/**
+ *  Package Flow Processor
+ *  <p>
+ *      Subscribes received packages from upstream (e.g.: socket reader),
+ *      processes them with 'Processor.processPackage()' on the executor,
+ *      and publishes the response packages to downstream (e.g.: socket writer).
+ *  </p>
+ *  <p>
+ *      At most 'capacity' packages are held at once (processing, or responses
+ *      waiting for downstream demand); the upstream is only asked for more
+ *      packages when they are released, so slow processing or slow writing
+ *      throttles the reading instead of piling up heap.
+ *  </p>
+ *  <p>
+ *      NOTICE: responses are published in completion order.
+ *  </p>
+ */
+public class PackageFlowProcessor implements Reactive.Processor<byte[], byte[]>, Reactive.Subscription {
+
+    private final Processor processor;
+    private final Executor executor;
+    private final int capacity;
+
+    private Reactive.Subscription upstream = null;
+    private Reactive.Subscriber<? super byte[]> downstream = null;
+
+    // responses waiting for downstream demand, one group per package
+    private final Deque<Deque<byte[]>> outputs = new ArrayDeque<>();
+
+    private long demand = 0;     // requested by downstream
+    private int inFlight = 0;    // packages being processed
+    private int released = 0;    // credits to be requested from upstream
+    private boolean emitting = false;  // one thread emits at a time
+    private boolean missed = false;    // drain() called while emitting
+    private boolean cancelled = false;
+
+    private boolean upstreamDone = false;
+    private Throwable upstreamError = null;
+    private boolean finished = false;
+
+    public PackageFlowProcessor(Processor processor, Executor executor, int capacity) {
+        super();
+        assert capacity > 0 : "capacity error: " + capacity;
+        this.processor = processor;
+        this.executor = executor;
+        this.capacity = capacity;
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    public synchronized int getBufferedCount() {
+        return outputs.size();
+    }
+
+    //
+    //  Publisher
+    //
+
+    @Override
+    public void subscribe(Reactive.Subscriber<? super byte[]> subscriber) {
+        synchronized (this) {
+            if (downstream != null) {
+                subscriber.onSubscribe(new Reactive.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("only one subscriber allowed"));
+                return;
+            }
+            downstream = subscriber;
+        }
+        subscriber.onSubscribe(this);
+        drain();
+    }
+
+    //
+    //  Subscription (for downstream)
+    //
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            cancel();
+            Reactive.Subscriber<? super byte[]> subscriber = downstream;
+            if (subscriber != null) {
+                subscriber.onError(new IllegalArgumentException("non-positive request: " + n));
+            }
+            return;
+        }
+        synchronized (this) {
+            demand += n;
+            if (demand < 0) {
+                // overflow
+                demand = Long.MAX_VALUE;
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        Reactive.Subscription subscription;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            outputs.clear();
+            subscription = upstream;
+        }
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    //
+    //  Subscriber (for upstream)
+    //
+
+    @Override
+    public void onSubscribe(Reactive.Subscription subscription) {
+        synchronized (this) {
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        subscription.request(capacity);
+    }
+
+    @Override
+    public void onNext(byte[] data) {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            assert inFlight + outputs.size() < capacity : "upstream sent more than requested";
+            ++inFlight;
+        }
+        executor.execute(() -> process(data));
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (this) {
+            upstreamDone = true;
+            upstreamError = throwable;
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            upstreamDone = true;
+        }
+        drain();
+    }
+
+    //
+    //  Processing
+    //
+
+    protected void process(byte[] data) {
+        List<byte[]> responses;
+        try {
+            responses = processor.processPackage(data);
+        } catch (RuntimeException e) {
+            responses = null;
+        }
+        synchronized (this) {
+            --inFlight;
+            if (cancelled) {
+                return;
+            } else if (responses == null || responses.isEmpty()) {
+                // nothing to respond, release the credit
+                ++released;
+            } else {
+                outputs.addLast(new ArrayDeque<>(responses));
+            }
+        }
+        drain();
+    }
+
+    private void drain() {
+        synchronized (this) {
+            if (emitting) {
+                // let the emitting thread loop again
+                missed = true;
+                return;
+            }
+            emitting = true;
+        }
+        boolean exited = false;
+        try {
+            exited = emit();
+        } finally {
+            if (!exited) {
+                // thrown by subscriber
+                synchronized (this) {
+                    emitting = false;
+                }
+            }
+        }
+    }
+
+    // emit until nothing to do; returns true after 'emitting' cleared
+    private boolean emit() {
+        Reactive.Subscriber<? super byte[]> subscriber;
+        Reactive.Subscription subscription;
+        int credits;
+        byte[] item;
+        Deque<byte[]> group;
+        boolean complete;
+        Throwable error;
+        while (true) {
+            synchronized (this) {
+                missed = false;
+                subscriber = downstream;
+                if (cancelled || finished || subscriber == null) {
+                    emitting = false;
+                    return true;
+                }
+                item = null;
+                if (demand > 0 && !outputs.isEmpty()) {
+                    group = outputs.peekFirst();
+                    item = group.pollFirst();
+                    if (group.isEmpty()) {
+                        // all responses for this package delivered, release the credit
+                        outputs.pollFirst();
+                        ++released;
+                    }
+                    --demand;
+                }
+                // request more from upstream when half of the buffer released
+                credits = 0;
+                if (released > 0 && (released * 2 >= capacity || outputs.isEmpty() && inFlight == 0)) {
+                    credits = released;
+                    released = 0;
+                }
+                subscription = upstream;
+                complete = item == null && upstreamDone && inFlight == 0 && outputs.isEmpty();
+                if (complete) {
+                    finished = true;
+                }
+                error = upstreamError;
+            }
+            if (item != null) {
+                subscriber.onNext(item);
+            }
+            if (credits > 0 && subscription != null && !complete) {
+                subscription.request(credits);
+            }
+            if (complete) {
+                if (error == null) {
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(error);
+                }
+                synchronized (this) {
+                    emitting = false;
+                }
+                return true;
+            }
+            if (item == null && credits == 0) {
+                synchronized (this) {
+                    if (!missed) {
+                        // nothing more to emit now
+                        emitting = false;
+                        return true;
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ *  Parallel Tasks
+ *  <p>
+ *      Runs a task for each item on the executor, with a concurrency cap
+ *      and a time budget for the whole list; results are kept in input order,
+ *      items failed or not finished in time get null.
+ *  </p>
+ *  <p>
+ *      NOTICE: use a dedicated executor, not the one running the caller,
+ *              or nested tasks may wait for threads until the budget runs out.
+ *  </p>
+ */
+public class ParallelTasks {
+
+    /**
+     *  Task for one item
+     */
+    public interface Task<T, R> {
+
+        R run(T item);
+    }
+
+    private final Executor executor;
+    private final int maxConcurrency;
+    private final long timeBudget;  // milliseconds
+
+    /**
+     *  Create parallel tasks runner
+     *
+     * @param executor       - thread pool
+     * @param maxConcurrency - max items running at once for each list
+     * @param timeBudget     - max milliseconds for each list
+     */
+    public ParallelTasks(Executor executor, int maxConcurrency, long timeBudget) {
+        super();
+        assert maxConcurrency > 0 && timeBudget > 0 : "params error: " + maxConcurrency + ", " + timeBudget;
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.timeBudget = timeBudget;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     *  Run task for all items
+     *
+     * @param items - input items
+     * @param task  - task for each item
+     * @return results in input order (null for failed/timeout)
+     */
+    public <T, R> List<R> map(List<T> items, Task<T, R> task) {
+        long deadline = System.currentTimeMillis() + timeBudget;
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        CompletableFuture<R> future;
+        for (T item : items) {
+            if (!acquire(permits, deadline)) {
+                // out of time, skip the rest
+                break;
+            }
+            try {
+                future = CompletableFuture.supplyAsync(() -> task.run(item), executor);
+            } catch (RuntimeException e) {
+                // executor rejected
+                permits.release();
+                break;
+            }
+            future.whenComplete((res, error) -> permits.release());
+            futures.add(future);
+        }
+        // collect results in order
+        List<R> results = new ArrayList<>(items.size());
+        for (CompletableFuture<R> f : futures) {
+            results.add(await(f, deadline));
+        }
+        while (results.size() < items.size()) {
+            results.add(null);
+        }
+        return results;
+    }
+
+    private static boolean acquire(Semaphore permits, long deadline) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return false;
+        }
+        try {
+            return permits.tryAcquire(remaining, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static <R> R await(CompletableFuture<R> future, long deadline) {
+        long remaining = deadline - System.currentTimeMillis();
+        try {
+            if (remaining <= 0) {
+                // out of time, take it only if done
+                return future.getNow(null);
+            }
+            return future.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | RuntimeException e) {
+            // task failed
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  Pipeline Stage
+ *  <p>
+ *      A bounded queue with its own worker threads;
+ *      each worker drains a batch from the queue, handles the items one by one,
+ *      then hands the survivors off to the next stage as a batch.
+ *  </p>
+ *  <p>
+ *      With a partitioner, every worker owns a queue, and items with the same key
+ *      always go to the same worker, so they are handled in the order they came.
+ *  </p>
+ */
+public class PipelineStage<T> {
+
+    /**
+     *  Stage Handler
+     */
+    public interface Handler<T> {
+
+        /**
+         *  Handle one item
+         *
+         * @param item - pipeline item
+         * @return false to stop the item here
+         */
+        boolean handle(T item);
+    }
+
+    /**
+     *  Stage Partitioner
+     */
+    public interface Partitioner<T> {
+
+        /**
+         *  Get hash code of the item's key,
+         *  items with same key are handled in order by one worker
+         *
+         * @param item - pipeline item
+         * @return key hash
+         */
+        int hash(T item);
+    }
+
+    /**
+     *  Stage Output
+     */
+    public interface Output<T> {
+
+        /**
+         *  Accept handled items (blocking when the receiver is full)
+         *
+         * @param batch - handled items
+         */
+        void accept(List<T> batch) throws InterruptedException;
+    }
+
+    private final String name;
+    private final List<BlockingQueue<T>> queues;
+    private final Partitioner<T> partitioner;
+    private final Handler<T> handler;
+    private final int workers;
+    private final int batchSize;
+
+    private Output<T> output = null;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = false;
+
+    // metrics
+    private final AtomicLong processed = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    public PipelineStage(String name, int capacity, int workers, int batchSize, Handler<T> handler) {
+        this(name, capacity, workers, batchSize, handler, null);
+    }
+
+    /**
+     *  Create stage
+     *
+     * @param name        - stage name
+     * @param capacity    - max items waiting in this stage
+     * @param workers     - count of worker threads
+     * @param batchSize   - max items handled by a worker at once
+     * @param handler     - item handler
+     * @param partitioner - key of items to be handled in order; null for no order
+     */
+    public PipelineStage(String name, int capacity, int workers, int batchSize, Handler<T> handler,
+                         Partitioner<T> partitioner) {
+        super();
+        assert capacity > 0 && workers > 0 && batchSize > 0 : "stage params error: " + name;
+        this.name = name;
+        List<BlockingQueue<T>> array = new ArrayList<>();
+        if (partitioner == null) {
+            // one queue shared by all workers
+            array.add(new ArrayBlockingQueue<>(capacity));
+        } else {
+            // one queue for each worker
+            int size = Math.max(1, capacity / workers);
+            for (int i = 0; i < workers; ++i) {
+                array.add(new ArrayBlockingQueue<>(size));
+            }
+        }
+        this.queues = array;
+        this.partitioner = partitioner;
+        this.handler = handler;
+        this.workers = workers;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String toString() {
+        String clazz = getClass().getSimpleName();
+        return "<" + clazz + " name=\"" + name + "\" workers=" + workers
+                + " backlog=" + getBacklog() + " processed=" + processed.get()
+                + " dropped=" + dropped.get() + " />";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setOutput(Output<T> next) {
+        output = next;
+    }
+
+    //
+    //  Metrics
+    //
+
+    /**
+     *  Get count of items waiting in this stage
+     */
+    public int getBacklog() {
+        int count = 0;
+        for (BlockingQueue<T> queue : queues) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    public int getCapacity() {
+        int count = 0;
+        for (BlockingQueue<T> queue : queues) {
+            count += queue.size() + queue.remainingCapacity();
+        }
+        return count;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    //
+    //  Input
+    //
+
+    private BlockingQueue<T> getQueue(T item) {
+        if (partitioner == null) {
+            return queues.get(0);
+        }
+        int hash = partitioner.hash(item);
+        // spread the high bits
+        hash ^= (hash >>> 16);
+        return queues.get(Math.floorMod(hash, queues.size()));
+    }
+
+    /**
+     *  Append an item, return immediately
+     *
+     * @return false on stage full
+     */
+    public boolean offer(T item) {
+        return getQueue(item).offer(item);
+    }
+
+    /**
+     *  Append an item, waiting for space
+     */
+    public void put(T item) throws InterruptedException {
+        getQueue(item).put(item);
+    }
+
+    /**
+     *  Append items, waiting for space
+     */
+    public void putAll(List<T> batch) throws InterruptedException {
+        for (T item : batch) {
+            getQueue(item).put(item);
+        }
+    }
+
+    //
+    //  Workers
+    //
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thr;
+        for (int i = 0; i < workers; ++i) {
+            BlockingQueue<T> queue = queues.get(i % queues.size());
+            thr = new Thread(() -> run(queue), "pipeline-" + name + "-" + i);
+            thr.setDaemon(true);
+            threads.add(thr);
+            thr.start();
+        }
+    }
+
+    /**
+     *  Stop workers and wait for them exiting,
+     *  items still waiting in the queue can be taken by 'drain()'
+     */
+    public synchronized void stop() {
+        running = false;
+        for (Thread thr : threads) {
+            thr.interrupt();
+        }
+        try {
+            for (Thread thr : threads) {
+                thr.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        threads.clear();
+    }
+
+    /**
+     *  Remove all items waiting in the queue
+     *
+     * @return waiting items
+     */
+    public List<T> drain() {
+        List<T> items = new ArrayList<>();
+        for (BlockingQueue<T> queue : queues) {
+            queue.drainTo(items);
+        }
+        return items;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run(BlockingQueue<T> queue) {
+        List<T> batch = new ArrayList<>(batchSize);
+        List<T> results = new ArrayList<>(batchSize);
+        T first;
+        while (running) {
+            try {
+                first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (T item : batch) {
+                    if (handleItem(item)) {
+                        results.add(item);
+                    } else {
+                        dropped.incrementAndGet();
+                    }
+                }
+                processed.addAndGet(batch.size());
+                if (!results.isEmpty() && output != null) {
+                    // hand off to next stage
+                    output.accept(results);
+                }
+            } catch (InterruptedException e) {
+                // stopping, the output should take care of
+                // the items not handed off
+                break;
+            } finally {
+                batch.clear();
+                results.clear();
+            }
+        }
+    }
+
+    protected boolean handleItem(T item) {
+        try {
+            return handler.handle(item);
+        } catch (RuntimeException e) {
+            // the handler should finish the item itself when it fails,
+            // here just stop the item for unexpected errors
+            return false;
+        }
+    }
+
+}
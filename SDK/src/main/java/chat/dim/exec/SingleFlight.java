@@ -0,0 +1,132 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ *  Single Flight
+ *  <p>
+ *      Only one thread runs the loader for the same key at a time,
+ *      the other threads wait and share its result.
+ *  </p>
+ *  <p>
+ *      If the loading thread asks for the same key again (recursion),
+ *      the loader runs directly instead of waiting for itself.
+ *  </p>
+ */
+public final class SingleFlight<K, V> {
+
+    private static final class Call<V> {
+
+        final Thread owner = Thread.currentThread();
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private V value = null;
+        private RuntimeException error = null;
+
+        void complete(V result) {
+            value = result;
+            latch.countDown();
+        }
+
+        void fail(RuntimeException e) {
+            error = e;
+            latch.countDown();
+        }
+
+        V await() {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        latch.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        }
+    }
+
+    private final Map<K, Call<V>> calls = new ConcurrentHashMap<>();
+
+    /**
+     *  Run loader for the key, or wait for the running one
+     *
+     * @param key    - loading key
+     * @param loader - loading function
+     * @return result from the loader
+     */
+    public V execute(K key, Supplier<V> loader) {
+        Call<V> call = new Call<>();
+        Call<V> running = calls.putIfAbsent(key, call);
+        if (running != null) {
+            if (running.owner == Thread.currentThread()) {
+                // reentrant
+                return loader.get();
+            }
+            return running.await();
+        }
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            call.fail(e);
+            throw e;
+        } catch (Error e) {
+            call.fail(new IllegalStateException(e));
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     *  Count of keys in loading
+     */
+    public int getFlightCount() {
+        return calls.size();
+    }
+
+}
@@ -0,0 +1,317 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.mkm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import chat.dim.cache.BoundedCache;
+import chat.dim.core.Archivist;
+import chat.dim.protocol.DecryptKey;
+import chat.dim.protocol.Document;
+import chat.dim.protocol.ID;
+import chat.dim.protocol.Meta;
+import chat.dim.protocol.SignKey;
+
+/**
+ *  Caching Data Source
+ *  <p>
+ *      Caches meta & documents from the real data source (facebook) with TTL,
+ *      including 'not found' results for a shorter time;
+ *      add it as an observer of ObservableArchivist to drop the stale ones.
+ *  </p>
+ *  <p>
+ *      NOTICE: add it before the observers resuming messages
+ *      (SuspendedMessageQueue, PendingMessageQueue), observers are notified
+ *      in order, so the resumed messages will not read the stale cache.
+ *  </p>
+ *  <p>
+ *      NOTICE: entities keep their data source by weak reference,
+ *      so the caller must hold this object.
+ *  </p>
+ */
+public class CachingDataSource implements User.DataSource, Group.DataSource, Archivist.Observer {
+
+    private static final class Holder<V> {
+        final V value;
+        final long expired;
+        Holder(V value, long expired) {
+            this.value = value;
+            this.expired = expired;
+        }
+    }
+
+    private final User.DataSource userSource;
+    private final Group.DataSource groupSource;
+
+    private final long ttl;          // milliseconds for found
+    private final long negativeTtl;  // milliseconds for not found
+
+    private final BoundedCache<ID, Holder<Meta>> metaCache;
+    private final BoundedCache<ID, Holder<List<Document>>> documentCache;
+
+    // invalidation stamps (striped by ID),
+    // a fill racing with invalidation drops its result
+    private static final int STRIPES = 64;
+    private final AtomicLongArray metaStamps = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray documentStamps = new AtomicLongArray(STRIPES);
+
+    /**
+     *  Create caching data source
+     *
+     * @param facebook    - real data source
+     * @param maximum     - max entries for meta/documents
+     * @param ttl         - milliseconds to keep the found meta/documents
+     * @param negativeTtl - milliseconds to keep the 'not found' results
+     */
+    public <T extends User.DataSource & Group.DataSource> CachingDataSource(T facebook, int maximum,
+                                                                             long ttl, long negativeTtl) {
+        super();
+        this.userSource = facebook;
+        this.groupSource = facebook;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.metaCache = new BoundedCache<>(maximum);
+        this.documentCache = new BoundedCache<>(maximum);
+    }
+
+    public BoundedCache<ID, ?> getMetaCache() {
+        return metaCache;
+    }
+
+    public BoundedCache<ID, ?> getDocumentCache() {
+        return documentCache;
+    }
+
+    /**
+     *  Remove cached meta & documents for this ID
+     *
+     * @param did - entity ID
+     */
+    public void invalidate(ID did) {
+        invalidateMeta(did);
+        invalidateDocuments(did);
+    }
+
+    protected void invalidateMeta(ID did) {
+        // bump the stamp before removing
+        metaStamps.incrementAndGet(stripe(did));
+        metaCache.remove(did);
+    }
+
+    protected void invalidateDocuments(ID did) {
+        // bump the stamp before removing
+        documentStamps.incrementAndGet(stripe(did));
+        documentCache.remove(did);
+    }
+
+    private static int stripe(ID did) {
+        int hash = did.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private void putMeta(ID did, Holder<Meta> holder, long stamp) {
+        metaCache.put(did, holder);
+        if (metaStamps.get(stripe(did)) != stamp) {
+            // invalidated while loading, the result may be stale
+            metaCache.remove(did);
+        }
+    }
+
+    private void putDocuments(ID did, Holder<List<Document>> holder, long stamp) {
+        documentCache.put(did, holder);
+        if (documentStamps.get(stripe(did)) != stamp) {
+            // invalidated while loading, the result may be stale
+            documentCache.remove(did);
+        }
+    }
+
+    //
+    //  Archivist Observer
+    //
+
+    @Override
+    public void onMetaSaved(Meta meta, ID did) {
+        invalidateMeta(did);
+    }
+
+    @Override
+    public void onDocumentSaved(Document document, ID did) {
+        invalidateDocuments(did);
+    }
+
+    //
+    //  Entity DataSource
+    //
+
+    @Override
+    public Meta getMeta(ID did) {
+        long now = System.currentTimeMillis();
+        Holder<Meta> holder = metaCache.get(did);
+        if (holder == null || holder.expired < now) {
+            long stamp = metaStamps.get(stripe(did));
+            Meta meta = userSource.getMeta(did);
+            holder = new Holder<>(meta, now + (meta == null ? negativeTtl : ttl));
+            putMeta(did, holder, stamp);
+        }
+        return holder.value;
+    }
+
+    @Override
+    public List<Document> getDocuments(ID did) {
+        long now = System.currentTimeMillis();
+        Holder<List<Document>> holder = documentCache.get(did);
+        if (holder == null || holder.expired < now) {
+            long stamp = documentStamps.get(stripe(did));
+            List<Document> documents = userSource.getDocuments(did);
+            boolean empty = documents == null || documents.isEmpty();
+            holder = new Holder<>(documents, now + (empty ? negativeTtl : ttl));
+            putDocuments(did, holder, stamp);
+        }
+        return holder.value;
+    }
+
+    @Override
+    public Map<ID, Meta> getMetas(Collection<ID> identifiers) {
+        long now = System.currentTimeMillis();
+        Map<ID, Meta> metas = new LinkedHashMap<>();
+        List<ID> misses = new ArrayList<>();
+        List<Long> stamps = new ArrayList<>();
+        Holder<Meta> holder;
+        for (ID did : identifiers) {
+            holder = metaCache.get(did);
+            if (holder == null || holder.expired < now) {
+                misses.add(did);
+                stamps.add(metaStamps.get(stripe(did)));
+            } else if (holder.value != null) {
+                metas.put(did, holder.value);
+            }
+        }
+        if (!misses.isEmpty()) {
+            // query the missed ones in one batch
+            Map<ID, Meta> results = userSource.getMetas(misses);
+            Meta meta;
+            ID did;
+            for (int i = 0; i < misses.size(); ++i) {
+                did = misses.get(i);
+                meta = results.get(did);
+                putMeta(did, new Holder<>(meta, now + (meta == null ? negativeTtl : ttl)), stamps.get(i));
+                if (meta != null) {
+                    metas.put(did, meta);
+                }
+            }
+        }
+        return metas;
+    }
+
+    @Override
+    public Map<ID, List<Document>> getDocuments(Collection<ID> identifiers) {
+        long now = System.currentTimeMillis();
+        Map<ID, List<Document>> documents = new LinkedHashMap<>();
+        List<ID> misses = new ArrayList<>();
+        List<Long> stamps = new ArrayList<>();
+        Holder<List<Document>> holder;
+        for (ID did : identifiers) {
+            holder = documentCache.get(did);
+            if (holder == null || holder.expired < now) {
+                misses.add(did);
+                stamps.add(documentStamps.get(stripe(did)));
+            } else if (holder.value != null && !holder.value.isEmpty()) {
+                documents.put(did, holder.value);
+            }
+        }
+        if (!misses.isEmpty()) {
+            // query the missed ones in one batch
+            Map<ID, List<Document>> results = userSource.getDocuments(misses);
+            List<Document> docs;
+            boolean empty;
+            ID did;
+            for (int i = 0; i < misses.size(); ++i) {
+                did = misses.get(i);
+                docs = results.get(did);
+                empty = docs == null || docs.isEmpty();
+                putDocuments(did, new Holder<>(docs, now + (empty ? negativeTtl : ttl)), stamps.get(i));
+                if (!empty) {
+                    documents.put(did, docs);
+                }
+            }
+        }
+        return documents;
+    }
+
+    //
+    //  User DataSource
+    //
+
+    @Override
+    public List<ID> getContacts(ID user) {
+        return userSource.getContacts(user);
+    }
+
+    @Override
+    public List<DecryptKey> getPrivateKeysForDecryption(ID user) {
+        return userSource.getPrivateKeysForDecryption(user);
+    }
+
+    @Override
+    public SignKey getPrivateKeyForSignature(ID user) {
+        return userSource.getPrivateKeyForSignature(user);
+    }
+
+    @Override
+    public SignKey getPrivateKeyForVisaSignature(ID user) {
+        return userSource.getPrivateKeyForVisaSignature(user);
+    }
+
+    //
+    //  Group DataSource
+    //
+
+    @Override
+    public ID getFounder(ID group) {
+        return groupSource.getFounder(group);
+    }
+
+    @Override
+    public ID getOwner(ID group) {
+        return groupSource.getOwner(group);
+    }
+
+    @Override
+    public List<ID> getMembers(ID group) {
+        return groupSource.getMembers(group);
+    }
+
+}
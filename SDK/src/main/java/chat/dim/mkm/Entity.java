@@ -30,7 +30,10 @@
  */
 package chat.dim.mkm;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import chat.dim.protocol.Document;
 import chat.dim.protocol.ID;
@@ -100,6 +103,42 @@ public interface Entity {
          * @return Document list
          */
         List<Document> getDocuments(ID did);
+
+        /**
+         *  Get metas for entity IDs, override it to query in one batch
+         *
+         * @param identifiers - entity IDs
+         * @return ID => Meta, missing ones not included
+         */
+        default Map<ID, Meta> getMetas(Collection<ID> identifiers) {
+            Map<ID, Meta> metas = new LinkedHashMap<>();
+            Meta meta;
+            for (ID did : identifiers) {
+                meta = getMeta(did);
+                if (meta != null) {
+                    metas.put(did, meta);
+                }
+            }
+            return metas;
+        }
+
+        /**
+         *  Get documents for entity IDs, override it to query in one batch
+         *
+         * @param identifiers - entity IDs
+         * @return ID => Documents, missing ones not included
+         */
+        default Map<ID, List<Document>> getDocuments(Collection<ID> identifiers) {
+            Map<ID, List<Document>> documents = new LinkedHashMap<>();
+            List<Document> docs;
+            for (ID did : identifiers) {
+                docs = getDocuments(did);
+                if (docs != null && !docs.isEmpty()) {
+                    documents.put(did, docs);
+                }
+            }
+            return documents;
+        }
     }
 
     /**
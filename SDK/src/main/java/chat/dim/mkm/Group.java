@@ -30,7 +30,10 @@
  */
 package chat.dim.mkm;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import chat.dim.protocol.ID;
 
@@ -83,11 +86,33 @@ public interface Group extends Entity {
 
         /**
          *  Get all members in the group
+         *  <p>
+         *      return a MemberSet for large groups, it will be passed through
+         *      without copying, and checked by hash.
+         *  </p>
          *
          * @param group - group ID
          * @return members list (ID)
          */
         List<ID> getMembers(ID group);
 
+        /**
+         *  Get members for groups, override it to query in one batch
+         *
+         * @param groups - group IDs
+         * @return group ID => members, missing ones not included
+         */
+        default Map<ID, List<ID>> getMembers(Collection<ID> groups) {
+            Map<ID, List<ID>> results = new LinkedHashMap<>();
+            List<ID> members;
+            for (ID gid : groups) {
+                members = getMembers(gid);
+                if (members != null && !members.isEmpty()) {
+                    results.put(gid, members);
+                }
+            }
+            return results;
+        }
+
     }
 }
@@ -0,0 +1,149 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.mkm;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import chat.dim.protocol.Address;
+import chat.dim.protocol.ID;
+import chat.dim.protocol.Meta;
+
+/**
+ *  Interning ID Factory
+ *  <p>
+ *      Wraps the ID factory to share one instance for equal IDs,
+ *      so parsing a known ID string is a map lookup, and the member lists,
+ *      key tables and caches hold the same objects.
+ *  </p>
+ *  <p>
+ *      The IDs are weakly retained, they are released when nobody uses them;
+ *      lookups take no lock, the released entries are expunged on interning.
+ *      Install it by: ID.setFactory(new InterningIDFactory(ID.getFactory()))
+ *  </p>
+ */
+public class InterningIDFactory implements ID.Factory {
+
+    private static final class Entry extends WeakReference<ID> {
+        final String key;
+        Entry(String key, ID did, ReferenceQueue<ID> queue) {
+            super(did, queue);
+            this.key = key;
+        }
+    }
+
+    private final ID.Factory factory;
+
+    // ID string => ID
+    private final ConcurrentMap<String, Entry> pool = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ID> released = new ReferenceQueue<>();
+
+    public InterningIDFactory(ID.Factory factory) {
+        super();
+        this.factory = factory;
+    }
+
+    public ID.Factory getFactory() {
+        return factory;
+    }
+
+    public int size() {
+        expunge();
+        return pool.size();
+    }
+
+    /**
+     *  Get the shared instance equals to this ID
+     *
+     * @param did - ID object
+     * @return interned ID
+     */
+    public ID intern(ID did) {
+        if (did == null) {
+            return null;
+        }
+        expunge();
+        String str = did.toString();
+        Entry entry = new Entry(str, did, released);
+        Entry old;
+        ID shared;
+        while (true) {
+            old = pool.putIfAbsent(str, entry);
+            if (old == null) {
+                return did;
+            }
+            shared = old.get();
+            if (shared != null) {
+                return shared;
+            }
+            // released, replace it
+            if (pool.replace(str, old, entry)) {
+                return did;
+            }
+        }
+    }
+
+    private ID lookup(String identifier) {
+        Entry entry = pool.get(identifier);
+        return entry == null ? null : entry.get();
+    }
+
+    // remove entries of released IDs
+    private void expunge() {
+        Reference<? extends ID> ref;
+        while ((ref = released.poll()) != null) {
+            pool.remove(((Entry) ref).key, ref);
+        }
+    }
+
+    @Override
+    public ID generateIdentifier(Meta meta, int network, String terminal) {
+        return intern(factory.generateIdentifier(meta, network, terminal));
+    }
+
+    @Override
+    public ID createIdentifier(String name, Address address, String terminal) {
+        return intern(factory.createIdentifier(name, address, terminal));
+    }
+
+    @Override
+    public ID parseIdentifier(String identifier) {
+        ID did = lookup(identifier);
+        if (did == null) {
+            did = intern(factory.parseIdentifier(identifier));
+        }
+        return did;
+    }
+
+}
@@ -0,0 +1,130 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.mkm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import chat.dim.protocol.ID;
+
+/**
+ *  Local Users Index
+ *  <p>
+ *      Immutable snapshot of local users, with their positions hashed,
+ *      so selecting the local user for a receiver or a group is O(1) / O(members).
+ *  </p>
+ */
+public final class LocalUserIndex {
+
+    private final List<ID> users;
+    private final Map<ID, Integer> positions;
+
+    public LocalUserIndex(List<ID> localUsers) {
+        super();
+        List<ID> array = new ArrayList<>(localUsers);
+        Map<ID, Integer> map = new HashMap<>(array.size() * 4 / 3 + 1);
+        for (int i = array.size() - 1; i >= 0; --i) {
+            // keep the first position for duplicated IDs
+            map.put(array.get(i), i);
+        }
+        this.users = Collections.unmodifiableList(array);
+        this.positions = map;
+    }
+
+    public List<ID> getUsers() {
+        return users;
+    }
+
+    public boolean isEmpty() {
+        return users.isEmpty();
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    /**
+     *  Get first local user (current user)
+     */
+    public ID getFirst() {
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    /**
+     *  Get position of the local user
+     *
+     * @param user - user ID
+     * @return -1 on not a local user
+     */
+    public int indexOf(ID user) {
+        Integer pos = positions.get(user);
+        return pos == null ? -1 : pos;
+    }
+
+    public boolean contains(ID user) {
+        return positions.containsKey(user);
+    }
+
+    /**
+     *  Get the foremost local user in the members
+     *
+     * @param members - group members
+     * @return null on no local user
+     */
+    public ID selectMember(Iterable<ID> members) {
+        if (members instanceof MemberSet && users.size() < ((MemberSet) members).size()) {
+            // fewer local users, check them in order
+            MemberSet memberSet = (MemberSet) members;
+            for (ID item : users) {
+                if (memberSet.contains(item)) {
+                    return item;
+                }
+            }
+            return null;
+        }
+        int best = Integer.MAX_VALUE;
+        Integer pos;
+        for (ID item : members) {
+            pos = positions.get(item);
+            if (pos != null && pos < best) {
+                best = pos;
+                if (best == 0) {
+                    break;
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : users.get(best);
+    }
+
+}
@@ -0,0 +1,175 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.mkm;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import chat.dim.protocol.ID;
+
+/**
+ *  Group Members
+ *  <p>
+ *      Immutable member list with a hash index, so 'contains()' and 'indexOf()'
+ *      are O(1), and the chunks are views without copying.
+ *  </p>
+ *  <p>
+ *      The members keep their original order (the owner may be the first one),
+ *      duplicated IDs are removed; if InterningIDFactory installed,
+ *      the members will be the shared ID instances.
+ *  </p>
+ */
+public final class MemberSet extends AbstractList<ID> implements RandomAccess {
+
+    private static final MemberSet EMPTY = new MemberSet(new ID[0], 0);
+
+    private final ID[] members;
+    private final int[] slots;  // position + 1, 0 means empty
+
+    private MemberSet(ID[] array, int count) {
+        super();
+        ID[] ids = new ID[count];
+        int size = Integer.highestOneBit(Math.max(count, 2) * 2 - 1) << 1;
+        int[] table = new int[size];
+        int mask = size - 1;
+        int total = 0;
+        int index;
+        ID item;
+        for (int i = 0; i < count; ++i) {
+            item = array[i];
+            index = spread(item.hashCode()) & mask;
+            while (table[index] != 0 && !item.equals(ids[table[index] - 1])) {
+                index = (index + 1) & mask;
+            }
+            if (table[index] != 0) {
+                // duplicated
+                continue;
+            }
+            ids[total] = item;
+            table[index] = ++total;
+        }
+        this.members = total == count ? ids : Arrays.copyOf(ids, total);
+        this.slots = table;
+    }
+
+    /**
+     *  Create member set
+     *
+     * @param members - member list
+     * @return same object if it's a MemberSet already
+     */
+    public static MemberSet of(Collection<ID> members) {
+        if (members instanceof MemberSet) {
+            return (MemberSet) members;
+        } else if (members == null || members.isEmpty()) {
+            return EMPTY;
+        }
+        ID.Factory factory = ID.getFactory();
+        InterningIDFactory interner = factory instanceof InterningIDFactory ? (InterningIDFactory) factory : null;
+        ID[] array = new ID[members.size()];
+        int count = 0;
+        for (ID item : members) {
+            if (item == null) {
+                continue;
+            }
+            array[count++] = interner == null ? item : interner.intern(item);
+        }
+        return new MemberSet(array, count);
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) * 0x9E3779B9;
+    }
+
+    @Override
+    public ID get(int index) {
+        return members[index];
+    }
+
+    @Override
+    public int size() {
+        return members.length;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof ID)) {
+            return -1;
+        }
+        int mask = slots.length - 1;
+        int index = spread(o.hashCode()) & mask;
+        int pos;
+        while ((pos = slots[index]) != 0) {
+            ID item = members[pos - 1];
+            if (item == o || item.equals(o)) {
+                return pos - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        // no duplicated members
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     *  Split members into chunks for streaming
+     *
+     * @param size - max members in each chunk
+     * @return list views
+     */
+    public List<List<ID>> chunks(int size) {
+        assert size > 0 : "chunk size error: " + size;
+        int total = members.length;
+        if (total == 0) {
+            return Collections.emptyList();
+        }
+        List<List<ID>> chunks = new ArrayList<>((total + size - 1) / size);
+        for (int start = 0; start < total; start += size) {
+            chunks.add(subList(start, Math.min(start + size, total)));
+        }
+        return chunks;
+    }
+
+}
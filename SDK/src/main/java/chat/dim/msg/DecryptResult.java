@@ -0,0 +1,120 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.msg;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import chat.dim.protocol.InstantMessage;
+
+/**
+ *  Result of decrypting a secure message
+ *  <p>
+ *      Carries the plain message on success, or a failure reason otherwise;
+ *      failures are shared constants, so no exception, stack trace or
+ *      error string is built for bad keys or messages not for us.
+ *  </p>
+ */
+public final class DecryptResult {
+
+    public enum Failure {
+        DELEGATE_NOT_FOUND,      // secure message delegate not found
+        RECEIVER_ERROR,          // not for us
+        KEY_NOT_DECRYPTED,       // failed to decrypt message key with local private key
+        KEY_NOT_FOUND,           // failed to deserialize message key, or reused key not found
+        DATA_NOT_FOUND,          // message data empty
+        DATA_NOT_DECRYPTED,      // failed to decrypt message data with the key
+        CONTENT_NOT_DESERIALIZED, // failed to deserialize content from the plaintext
+        UNKNOWN                  // failed by a packer without result-typed decrypting
+    }
+
+    private static final Map<Failure, DecryptResult> failures = new EnumMap<>(Failure.class);
+
+    static {
+        for (Failure reason : Failure.values()) {
+            failures.put(reason, new DecryptResult(null, reason));
+        }
+    }
+
+    private final InstantMessage message;
+    private final Failure failure;
+
+    private DecryptResult(InstantMessage iMsg, Failure reason) {
+        super();
+        message = iMsg;
+        failure = reason;
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     *  Get decrypted message
+     *
+     * @return plain message, null on failure
+     */
+    public InstantMessage getMessage() {
+        return message;
+    }
+
+    /**
+     *  Get failure reason
+     *
+     * @return null on success
+     */
+    public Failure getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        String clazz = getClass().getSimpleName();
+        if (failure == null) {
+            return "<" + clazz + " success=1 />";
+        }
+        return "<" + clazz + " failure=\"" + failure + "\" />";
+    }
+
+    //
+    //  Factory methods
+    //
+
+    public static DecryptResult success(InstantMessage iMsg) {
+        assert iMsg != null : "decrypted message should not be empty";
+        return new DecryptResult(iMsg, null);
+    }
+
+    public static DecryptResult failure(Failure reason) {
+        return failures.get(reason);
+    }
+
+}
@@ -0,0 +1,268 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.msg;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chat.dim.core.EnvelopeFilter;
+import chat.dim.protocol.ReliableMessage;
+
+/**
+ *  Duplicate Message Filter
+ *  <p>
+ *      Drops messages already received within the time window,
+ *      before any asymmetric cryptography runs.
+ *  </p>
+ *  <p>
+ *      A message is only recorded after it passed verifying ('onMessageVerified()'),
+ *      so a forged copy or a first delivery failed to verify cannot block
+ *      the redelivery; two copies verifying at the same time may both pass.
+ *  </p>
+ *  <p>
+ *      Each message is keyed by a 64-bit fingerprint of SHA-256(signature + data),
+ *      (the data is included, so a copied signature with other data cannot
+ *      shadow the real message), and kept in rotating generations of compact
+ *      hash sets, so the memory is bounded by (generations * capacity * 8) bytes.
+ *  </p>
+ */
+public class DuplicateFilter implements EnvelopeFilter {
+
+    private final long span;       // milliseconds for each generation
+    private final int capacity;    // max fingerprints for each generation
+
+    private final long[][] tables;
+    private final int[] counts;
+    private int current = 0;
+    private long rotateTime;
+
+    // metrics
+    private final AtomicLong checked = new AtomicLong(0);
+    private final AtomicLong duplicated = new AtomicLong(0);
+    private final AtomicLong earlyRotations = new AtomicLong(0);
+
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     *  Create filter
+     *
+     * @param window      - milliseconds to remember a message
+     * @param capacity    - max messages for each generation
+     * @param generations - count of rotating generations (at least 2)
+     */
+    public DuplicateFilter(long window, int capacity, int generations) {
+        super();
+        assert window > 0 && capacity > 0 && generations > 1 : "params error";
+        this.span = window / (generations - 1);
+        this.capacity = capacity;
+        // load factor 0.5
+        int size = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+        this.tables = new long[generations][size];
+        this.counts = new int[generations];
+        this.rotateTime = System.currentTimeMillis() + span;
+    }
+
+    /**
+     *  Create filter with 3 generations
+     *
+     * @param window   - milliseconds to remember a message
+     * @param capacity - max messages for each generation
+     */
+    public DuplicateFilter(long window, int capacity) {
+        this(window, capacity, 3);
+    }
+
+    //
+    //  Metrics
+    //
+
+    public long getCheckedCount() {
+        return checked.get();
+    }
+
+    public long getDuplicatedCount() {
+        return duplicated.get();
+    }
+
+    /**
+     *  Count of rotations caused by a full generation, not by time;
+     *  if this keeps growing, the capacity is too small for the window.
+     */
+    public long getEarlyRotationCount() {
+        return earlyRotations.get();
+    }
+
+    //
+    //  EnvelopeFilter
+    //
+
+    @Override
+    public Action filterMessage(ReliableMessage rMsg) {
+        Object signature = rMsg.get("signature");
+        if (signature == null) {
+            // let the verifier reject it
+            return Action.ACCEPT;
+        }
+        checked.incrementAndGet();
+        long fp = fingerprint(signature, rMsg.get("data"));
+        if (!check(fp)) {
+            return Action.ACCEPT;
+        }
+        duplicated.incrementAndGet();
+        return Action.DROP;
+    }
+
+    @Override
+    public void onMessageVerified(ReliableMessage rMsg) {
+        Object signature = rMsg.get("signature");
+        if (signature == null) {
+            assert false : "message not signed: " + rMsg.getSender();
+            return;
+        }
+        add(fingerprint(signature, rMsg.get("data")));
+    }
+
+    protected long fingerprint(Object signature, Object data) {
+        MessageDigest digest = sha256.get();
+        digest.reset();
+        digest.update(signature.toString().getBytes(StandardCharsets.UTF_8));
+        if (data != null) {
+            digest.update(data.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = digest.digest();
+        long fp = 0;
+        for (int i = 0; i < 8; ++i) {
+            fp = (fp << 8) | (hash[i] & 0xFF);
+        }
+        // zero is reserved for empty slots
+        return fp == 0 ? 1 : fp;
+    }
+
+    /**
+     *  Check fingerprint
+     *
+     * @param fp - message fingerprint
+     * @return true on duplicated
+     */
+    private synchronized boolean check(long fp) {
+        expire(System.currentTimeMillis());
+        for (long[] table : tables) {
+            if (contains(table, fp)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *  Add fingerprint
+     *
+     * @param fp - message fingerprint
+     */
+    private synchronized void add(long fp) {
+        long now = System.currentTimeMillis();
+        expire(now);
+        for (long[] table : tables) {
+            if (contains(table, fp)) {
+                // already recorded
+                return;
+            }
+        }
+        if (counts[current] >= capacity) {
+            earlyRotations.incrementAndGet();
+            rotate();
+            rotateTime = now + span;
+        }
+        insert(tables[current], fp);
+        counts[current] += 1;
+    }
+
+    private void expire(long now) {
+        if (now >= rotateTime) {
+            // time to drop the oldest generation;
+            // skip all generations expired while idle
+            long steps = (now - rotateTime) / span + 1;
+            for (long i = 0; i < steps && i < tables.length; ++i) {
+                rotate();
+            }
+            rotateTime = now + span;
+        }
+    }
+
+    private void rotate() {
+        current = (current + 1) % tables.length;
+        // clear the oldest generation for reusing
+        long[] table = tables[current];
+        for (int i = 0; i < table.length; ++i) {
+            table[i] = 0;
+        }
+        counts[current] = 0;
+    }
+
+    private static int indexOf(long fp, int mask) {
+        int h = (int) (fp ^ (fp >>> 32));
+        return h & mask;
+    }
+
+    private static boolean contains(long[] table, long fp) {
+        int mask = table.length - 1;
+        int index = indexOf(fp, mask);
+        long slot;
+        while ((slot = table[index]) != 0) {
+            if (slot == fp) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    private static void insert(long[] table, long fp) {
+        int mask = table.length - 1;
+        int index = indexOf(fp, mask);
+        while (table[index] != 0) {
+            if (table[index] == fp) {
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = fp;
+    }
+
+}
@@ -30,6 +30,8 @@
  */
 package chat.dim.msg;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import chat.dim.crypto.EncryptedBundle;
@@ -112,6 +114,27 @@ public interface InstantMessageDelegate {
      */
     EncryptedBundle encryptKey(byte[] data, ID receiver, InstantMessage iMsg);
 
+    /**
+     *  5. Encrypt key data for all group members,
+     *     override it to fetch the members' visas in one batch
+     *
+     * @param data      - serialized data of symmetric key
+     * @param receivers - group members
+     * @param iMsg      - instant message object
+     * @return receiver => encrypted key data, failed ones not included
+     */
+    default Map<ID, EncryptedBundle> encryptKeys(byte[] data, List<ID> receivers, InstantMessage iMsg) {
+        Map<ID, EncryptedBundle> bundles = new LinkedHashMap<>();
+        EncryptedBundle bundle;
+        for (ID receiver : receivers) {
+            bundle = encryptKey(data, receiver, iMsg);
+            if (bundle != null && !bundle.isEmpty()) {
+                bundles.put(receiver, bundle);
+            }
+        }
+        return bundles;
+    }
+
     /**
      *  6. Encode 'message.key' to String (Base64)
      *
@@ -83,6 +83,20 @@ public class InstantMessagePacker {
      * @return SecureMessage object, null on visa not found
      */
     public SecureMessage encryptMessage(InstantMessage iMsg, SymmetricKey password, List<ID> members) {
+        return encryptMessage(iMsg, password, members, null);
+    }
+
+    /**
+     *  Encrypt personal / group message, and collect the members skipped
+     *
+     * @param iMsg     - plain message
+     * @param password - symmetric key
+     * @param members  - group members for group message; null for personal message
+     * @param missing  - output for receiver/members whose public key not found; nullable
+     * @return SecureMessage object, null on visa not found
+     */
+    public SecureMessage encryptMessage(InstantMessage iMsg, SymmetricKey password, List<ID> members,
+                                        List<ID> missing) {
         // TODO: check attachment for File/Image/Audio/Video message content
         //      (do it by application)
         InstantMessageDelegate transformer = getDelegate();
@@ -161,19 +175,17 @@ public class InstantMessagePacker {
         //    assert !members.isEmpty() : "group members empty: " + receiver;
         }
 
-        Map<ID, EncryptedBundle> bundleMap = new HashMap<>();
-        EncryptedBundle bundle;
-        for (ID receiver : members) {
-            //
-            //  5. Encrypt key data to 'message.keys' with member's public keys
-            //
-            bundle = transformer.encryptKey(pwd, receiver, iMsg);
-            if (bundle == null || bundle.isEmpty()) {
-                // public key for member not found
-                // TODO: suspend this message for waiting member's visa
-                continue;
+        //
+        //  5. Encrypt key data to 'message.keys' with members' public keys
+        //
+        // public keys for members not found will be skipped
+        Map<ID, EncryptedBundle> bundleMap = transformer.encryptKeys(pwd, members, iMsg);
+        if (missing != null) {
+            for (ID item : members) {
+                if (!bundleMap.containsKey(item)) {
+                    missing.add(item);
+                }
             }
-            bundleMap.put(receiver, bundle);
         }
 
         //
@@ -0,0 +1,274 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.msg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import chat.dim.core.Archivist;
+import chat.dim.core.Packer;
+import chat.dim.protocol.Document;
+import chat.dim.protocol.EncryptKey;
+import chat.dim.protocol.ID;
+import chat.dim.protocol.InstantMessage;
+import chat.dim.protocol.Meta;
+import chat.dim.protocol.SecureMessage;
+
+/**
+ *  Pending Messages
+ *  <p>
+ *      Keeps outgoing messages whose receivers' visa (or meta) not found,
+ *      queries each missing ID only once, and encrypts the waiting messages
+ *      in a batch when all their missing documents saved.
+ *  </p>
+ *  <p>
+ *      Add this queue as an observer of ObservableArchivist,
+ *      the delegate will be called on the thread which saved the meta/document.
+ *  </p>
+ */
+public class PendingMessageQueue implements Archivist.Observer {
+
+    public interface Delegate {
+
+        /**
+         *  Called once when a missing ID gets its first waiting message
+         *
+         * @param did - receiver/member ID
+         */
+        void queryDocuments(ID did);
+
+        /**
+         *  Called with messages encrypted after the missing documents saved
+         *
+         * @param messages - encrypted messages, in suspended order
+         */
+        void resumeMessages(List<SecureMessage> messages);
+    }
+
+    private static final class Entry {
+        final InstantMessage message;
+        final Set<ID> missing;
+        final long time;
+        Entry(InstantMessage message, Set<ID> missing, long time) {
+            this.message = message;
+            this.missing = missing;
+            this.time = time;
+        }
+    }
+
+    private final Packer packer;
+    private final Delegate delegate;
+
+    private final int maxTotal;
+    private final long maxAge;  // milliseconds
+
+    // missing ID => waiting messages
+    private final Map<ID, Set<Entry>> waiting = new HashMap<>();
+    // all waiting messages, eldest first
+    private final Set<Entry> entries = new LinkedHashSet<>();
+    private long dropped = 0;
+
+    /**
+     *  Create pending queue
+     *
+     * @param packer   - message packer for encrypting
+     * @param delegate - query documents & resume messages
+     * @param maxTotal - max waiting messages
+     * @param maxAge   - milliseconds to keep a message
+     */
+    public PendingMessageQueue(Packer packer, Delegate delegate, int maxTotal, long maxAge) {
+        super();
+        assert maxTotal > 0 : "queue size error: " + maxTotal;
+        this.packer = packer;
+        this.delegate = delegate;
+        this.maxTotal = maxTotal;
+        this.maxAge = maxAge;
+    }
+
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    /**
+     *  Count of IDs waiting for documents
+     */
+    public synchronized int getMissingCount() {
+        return waiting.size();
+    }
+
+    /**
+     *  Count of messages dropped for full or expired
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     *  Suspend message for waiting receivers' documents
+     *
+     * @param iMsg    - plain message
+     * @param missing - receiver/members without visa
+     */
+    public void suspendMessage(InstantMessage iMsg, List<ID> missing) {
+        assert !missing.isEmpty() : "missing IDs empty: " + iMsg.getReceiver();
+        List<ID> queries = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Entry entry = new Entry(iMsg, new HashSet<>(missing), now);
+            Set<Entry> messages;
+            for (ID did : entry.missing) {
+                messages = waiting.get(did);
+                if (messages == null) {
+                    // coalesce the queries for same ID
+                    messages = new HashSet<>();
+                    waiting.put(did, messages);
+                    queries.add(did);
+                }
+                messages.add(entry);
+            }
+            entries.add(entry);
+            purge(now);
+        }
+        for (ID did : queries) {
+            delegate.queryDocuments(did);
+        }
+    }
+
+    /**
+     *  Remove expired messages, and the eldest ones if still full
+     */
+    public synchronized void purge() {
+        purge(System.currentTimeMillis());
+    }
+
+    private void purge(long now) {
+        long expired = now - maxAge;
+        Iterator<Entry> iterator = entries.iterator();
+        Entry entry;
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            if (entry.time >= expired && entries.size() <= maxTotal) {
+                // the rest are newer
+                break;
+            }
+            iterator.remove();
+            detach(entry);
+            dropped += 1;
+        }
+    }
+
+    private void detach(Entry entry) {
+        Set<Entry> messages;
+        for (ID did : entry.missing) {
+            messages = waiting.get(did);
+            if (messages == null) {
+                continue;
+            }
+            messages.remove(entry);
+            if (messages.isEmpty()) {
+                waiting.remove(did);
+            }
+        }
+    }
+
+    private List<InstantMessage> remove(ID did) {
+        List<InstantMessage> ready = new ArrayList<>();
+        synchronized (this) {
+            Set<Entry> messages = waiting.remove(did);
+            if (messages == null) {
+                return ready;
+            }
+            for (Entry item : messages) {
+                item.missing.remove(did);
+            }
+            // keep the suspended order
+            Iterator<Entry> iterator = entries.iterator();
+            Entry entry;
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                if (entry.missing.isEmpty()) {
+                    iterator.remove();
+                    ready.add(entry.message);
+                }
+            }
+        }
+        return ready;
+    }
+
+    /**
+     *  Encrypt messages which are not waiting for other IDs
+     *
+     * @param did - receiver/member ID with documents saved
+     */
+    public void resumeMessages(ID did) {
+        List<InstantMessage> ready = remove(did);
+        if (ready.isEmpty()) {
+            return;
+        }
+        List<SecureMessage> messages = new ArrayList<>(ready.size());
+        SecureMessage sMsg;
+        for (InstantMessage iMsg : ready) {
+            // if still failed, the packer will suspend it again
+            sMsg = packer.encryptMessage(iMsg);
+            if (sMsg != null) {
+                messages.add(sMsg);
+            }
+        }
+        if (!messages.isEmpty()) {
+            delegate.resumeMessages(messages);
+        }
+    }
+
+    //
+    //  Archivist Observer
+    //
+
+    @Override
+    public void onMetaSaved(Meta meta, ID did) {
+        if (meta.getPublicKey() instanceof EncryptKey) {
+            // meta key can be used for encryption
+            resumeMessages(did);
+        }
+        // else still waiting for visa
+    }
+
+    @Override
+    public void onDocumentSaved(Document document, ID did) {
+        resumeMessages(did);
+    }
+
+}
@@ -99,11 +99,31 @@ public class SecureMessagePacker {
      * @return InstantMessage object
      */
     public InstantMessage decryptMessage(SecureMessage sMsg, ID receiver) {
+        DecryptResult result = decryptMessage(sMsg, receiver, true);
+        return result.getMessage();
+    }
+
+    /**
+     *  Decrypt message without throwing
+     *  <p>
+     *      Same as 'decryptMessage()', but the normal runtime failures
+     *      (bad key, reused key not found, ...) are returned as reasons
+     *  </p>
+     *
+     * @param sMsg     - encrypted message
+     * @param receiver - actual receiver (local user)
+     * @return decrypted message or failure reason
+     */
+    public DecryptResult tryDecryptMessage(SecureMessage sMsg, ID receiver) {
+        return decryptMessage(sMsg, receiver, false);
+    }
+
+    private DecryptResult decryptMessage(SecureMessage sMsg, ID receiver, boolean throwing) {
         assert receiver.isUser() : "receiver error: " + receiver;
         SecureMessageDelegate transformer = getDelegate();
         if (transformer == null) {
             assert false : "secure message delegate not found";
-            return null;
+            return DecryptResult.failure(DecryptResult.Failure.DELEGATE_NOT_FOUND);
         }
 
         byte[] pwd;  // serialized symmetric key data
@@ -124,8 +144,11 @@ public class SecureMessagePacker {
             if (pwd == null || pwd.length == 0) {
                 // A: my visa updated but the sender doesn't got the new one;
                 // B: key data error.
-                throw new NullPointerException("failed to decrypt message key: " + bundle
-                        + ", " + sMsg.getSender() + " => " + receiver + ", " + sMsg.getGroup());
+                if (throwing) {
+                    throw new NullPointerException("failed to decrypt message key: " + bundle
+                            + ", " + sMsg.getSender() + " => " + receiver + ", " + sMsg.getGroup());
+                }
+                return DecryptResult.failure(DecryptResult.Failure.KEY_NOT_DECRYPTED);
                 // TODO: check whether my visa key is changed, push new visa to this contact
             }
         }
@@ -138,9 +161,12 @@ public class SecureMessagePacker {
         if (password == null) {
             // A: key data is empty, and cipher key not found from local storage;
             // B: key data error.
-            throw new NullPointerException("failed to get message key: "
-                    + (pwd == null ? 0 : pwd.length) + " byte(s) "
-                    + sMsg.getSender() + " => " + receiver + ", " + sMsg.getGroup());
+            if (throwing) {
+                throw new NullPointerException("failed to get message key: "
+                        + (pwd == null ? 0 : pwd.length) + " byte(s) "
+                        + sMsg.getSender() + " => " + receiver + ", " + sMsg.getGroup());
+            }
+            return DecryptResult.failure(DecryptResult.Failure.KEY_NOT_FOUND);
             // TODO: ask the sender to send again (with new message key)
         }
 
@@ -151,7 +177,7 @@ public class SecureMessagePacker {
         if (ciphertext == null || ciphertext.isEmpty()) {
             assert false : "failed to decode message data: "
                     + sMsg.getSender() + " => " + receiver + ", " + sMsg.getGroup();
-            return null;
+            return DecryptResult.failure(DecryptResult.Failure.DATA_NOT_FOUND);
         }
 
         //
@@ -161,9 +187,12 @@ public class SecureMessagePacker {
         if (body == null || body.length == 0) {
             // A: password is a reused key loaded from local storage, but it's expired;
             // B: key error.
-            throw new NullPointerException("failed to decrypt message data with key: " + password
-                    + ", data length: " + ciphertext.length() + " byte(s) "
-                    + sMsg.getSender() + " => " + receiver + ", " + sMsg.getGroup());
+            if (throwing) {
+                throw new NullPointerException("failed to decrypt message data with key: " + password
+                        + ", data length: " + ciphertext.length() + " byte(s) "
+                        + sMsg.getSender() + " => " + receiver + ", " + sMsg.getGroup());
+            }
+            return DecryptResult.failure(DecryptResult.Failure.DATA_NOT_DECRYPTED);
             // TODO: ask the sender to send again
         }
 
@@ -174,7 +203,7 @@ public class SecureMessagePacker {
         if (content == null) {
             assert false : "failed to deserialize content: " + body.length + " byte(s) "
                     + sMsg.getSender() + " => " + receiver + ", " + sMsg.getGroup();
-            return null;
+            return DecryptResult.failure(DecryptResult.Failure.CONTENT_NOT_DESERIALIZED);
         }
 
         // TODO: check attachment for File/Image/Audio/Video message content
@@ -190,7 +219,12 @@ public class SecureMessagePacker {
         map.remove("keys");
         map.remove("data");
         map.put("content", content.toMap());
-        return InstantMessage.parse(map);
+        InstantMessage iMsg = InstantMessage.parse(map);
+        if (iMsg == null) {
+            assert false : "failed to pack message: " + sMsg.getSender() + " => " + receiver;
+            return DecryptResult.failure(DecryptResult.Failure.CONTENT_NOT_DESERIALIZED);
+        }
+        return DecryptResult.success(iMsg);
     }
 
     /*
@@ -0,0 +1,276 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.msg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chat.dim.core.Archivist;
+import chat.dim.protocol.Document;
+import chat.dim.protocol.ID;
+import chat.dim.protocol.Meta;
+import chat.dim.protocol.ReliableMessage;
+
+/**
+ *  Suspended Messages
+ *  <p>
+ *      Keeps received messages whose sender is not ready (meta not found),
+ *      and resumes them in a batch when the sender's meta/document saved.
+ *  </p>
+ *  <p>
+ *      Add this queue as an observer of ObservableArchivist,
+ *      the delegate will be called on the thread which saved the meta/document.
+ *  </p>
+ */
+public class SuspendedMessageQueue implements Archivist.Observer {
+
+    public interface Delegate {
+
+        /**
+         *  Called when the first message of a sender suspended,
+         *  and again if the sender is still not ready after the query interval
+         *
+         * @param sender - message sender
+         */
+        void querySender(ID sender);
+
+        /**
+         *  Called when the sender's meta/document saved
+         *
+         * @param sender   - message sender
+         * @param messages - suspended messages, in received order
+         */
+        void resumeMessages(ID sender, List<ReliableMessage> messages);
+    }
+
+    private static final class Entry {
+        final ReliableMessage message;
+        final long time;
+        Entry(ReliableMessage message, long time) {
+            this.message = message;
+            this.time = time;
+        }
+    }
+
+    private static final class SenderQueue extends ArrayDeque<Entry> {
+        long queryTime = 0;
+    }
+
+    private final Delegate delegate;
+
+    private final int maxPerSender;
+    private final int maxTotal;
+    private final long maxAge;         // milliseconds
+    private final long queryInterval;  // milliseconds
+
+    // sender => messages, eldest first
+    private final Map<ID, SenderQueue> queues = new LinkedHashMap<>();
+    private int total = 0;
+    private long dropped = 0;
+    private long purgeTime = 0;
+
+    /**
+     *  Create suspended queue
+     *
+     * @param delegate     - query sender & resume messages
+     * @param maxPerSender - max messages for each sender
+     * @param maxTotal     - max messages for all senders
+     * @param maxAge       - milliseconds to keep a message
+     */
+    public SuspendedMessageQueue(Delegate delegate, int maxPerSender, int maxTotal, long maxAge) {
+        this(delegate, maxPerSender, maxTotal, maxAge, maxAge);
+    }
+
+    /**
+     *  Create suspended queue
+     *
+     * @param delegate      - query sender &amp; resume messages
+     * @param maxPerSender  - max messages for each sender
+     * @param maxTotal      - max messages for all senders
+     * @param maxAge        - milliseconds to keep a message
+     * @param queryInterval - milliseconds to query the sender again
+     */
+    public SuspendedMessageQueue(Delegate delegate, int maxPerSender, int maxTotal, long maxAge,
+                                 long queryInterval) {
+        super();
+        assert maxPerSender > 0 && maxTotal >= maxPerSender : "queue size error";
+        this.delegate = delegate;
+        this.maxPerSender = maxPerSender;
+        this.maxTotal = maxTotal;
+        this.maxAge = maxAge;
+        this.queryInterval = queryInterval;
+    }
+
+    public synchronized int getCount() {
+        return total;
+    }
+
+    public synchronized int getSenderCount() {
+        return queues.size();
+    }
+
+    /**
+     *  Count of messages dropped for full or expired
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     *  Suspend message for waiting sender's meta
+     *
+     * @param rMsg - network message
+     */
+    public void suspendMessage(ReliableMessage rMsg) {
+        ID sender = rMsg.getSender();
+        boolean query;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            SenderQueue queue = queues.get(sender);
+            if (queue == null) {
+                queue = new SenderQueue();
+                queues.put(sender, queue);
+            } else {
+                // drop expired messages of this sender
+                expire(queue, now - maxAge);
+                if (queue.size() >= maxPerSender) {
+                    // drop the oldest message of this sender
+                    queue.pollFirst();
+                    total -= 1;
+                    dropped += 1;
+                }
+            }
+            // query the sender for the first message,
+            // or when the last query got no answer in time
+            // (all older messages expired)
+            query = queue.isEmpty() || now - queue.queryTime >= queryInterval;
+            if (query) {
+                queue.queryTime = now;
+            }
+            queue.addLast(new Entry(rMsg, now));
+            total += 1;
+            if (total > maxTotal || now >= purgeTime) {
+                // full, or time to drop expired messages of other senders
+                purge(now);
+            }
+        }
+        if (query) {
+            delegate.querySender(sender);
+        }
+    }
+
+    /**
+     *  Remove expired messages, and the eldest ones if still full
+     */
+    public synchronized void purge() {
+        purge(System.currentTimeMillis());
+    }
+
+    private void purge(long now) {
+        purgeTime = now + maxAge;
+        long expired = now - maxAge;
+        Iterator<SenderQueue> iterator = queues.values().iterator();
+        SenderQueue queue;
+        while (iterator.hasNext()) {
+            queue = iterator.next();
+            expire(queue, expired);
+            while (!queue.isEmpty() && total > maxTotal) {
+                queue.pollFirst();
+                total -= 1;
+                dropped += 1;
+            }
+            if (queue.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void expire(Deque<Entry> queue, long expired) {
+        while (!queue.isEmpty() && queue.peekFirst().time < expired) {
+            queue.pollFirst();
+            total -= 1;
+            dropped += 1;
+        }
+    }
+
+    private List<ReliableMessage> remove(ID sender) {
+        Deque<Entry> queue;
+        long expired = System.currentTimeMillis() - maxAge;
+        List<ReliableMessage> messages = new ArrayList<>();
+        synchronized (this) {
+            queue = queues.remove(sender);
+            if (queue == null) {
+                return messages;
+            }
+            total -= queue.size();
+            for (Entry item : queue) {
+                if (item.time < expired) {
+                    dropped += 1;
+                    continue;
+                }
+                messages.add(item.message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     *  Resume all messages from this sender
+     *
+     * @param sender - message sender
+     */
+    public void resumeMessages(ID sender) {
+        List<ReliableMessage> messages = remove(sender);
+        if (!messages.isEmpty()) {
+            delegate.resumeMessages(sender, messages);
+        }
+    }
+
+    //
+    //  Archivist Observer
+    //
+
+    @Override
+    public void onMetaSaved(Meta meta, ID did) {
+        resumeMessages(did);
+    }
+
+    @Override
+    public void onDocumentSaved(Document document, ID did) {
+        resumeMessages(did);
+    }
+
+}
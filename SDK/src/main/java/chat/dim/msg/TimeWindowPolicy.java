@@ -0,0 +1,122 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.msg;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chat.dim.protocol.ReliableMessage;
+
+/**
+ *  Message Time Window
+ *  <p>
+ *      Rejects far-past and far-future messages by the envelope time,
+ *      before verifying or decrypting them.
+ *  </p>
+ *  <p>
+ *      NOTICE: the envelope time is not covered by the signature,
+ *      so this only sheds stale traffic cheaply; it cannot bound replays
+ *      (a replayed message may carry any time), don't rely on it for
+ *      limiting the DuplicateFilter's window.
+ *  </p>
+ */
+public class TimeWindowPolicy {
+
+    private final long maxPast;    // milliseconds
+    private final long maxFuture;  // milliseconds
+
+    // metrics
+    private final AtomicLong expired = new AtomicLong(0);
+    private final AtomicLong premature = new AtomicLong(0);
+
+    /**
+     *  Create time window
+     *
+     * @param maxPast   - milliseconds before now
+     * @param maxFuture - milliseconds after now (clock skew)
+     */
+    public TimeWindowPolicy(long maxPast, long maxFuture) {
+        super();
+        assert maxPast > 0 && maxFuture >= 0 : "time window error: " + maxPast + ", " + maxFuture;
+        this.maxPast = maxPast;
+        this.maxFuture = maxFuture;
+    }
+
+    public long getMaxPast() {
+        return maxPast;
+    }
+
+    public long getMaxFuture() {
+        return maxFuture;
+    }
+
+    //
+    //  Metrics
+    //
+
+    /**
+     *  Count of messages dropped for too old
+     */
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    /**
+     *  Count of messages dropped for coming from the future
+     */
+    public long getPrematureCount() {
+        return premature.get();
+    }
+
+    /**
+     *  Check message time with current time
+     *
+     * @param rMsg - network message
+     * @return false on out of the window
+     */
+    public boolean checkMessage(ReliableMessage rMsg) {
+        Date time = rMsg.getTime();
+        if (time == null) {
+            // TODO: override to reject messages without time
+            return true;
+        }
+        long delta = time.getTime() - System.currentTimeMillis();
+        if (delta < -maxPast) {
+            expired.incrementAndGet();
+            return false;
+        } else if (delta > maxFuture) {
+            premature.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,800 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import chat.dim.core.Archivist;
+import chat.dim.format.JSONMap;
+import chat.dim.format.UTF8;
+import chat.dim.mkm.Entity;
+import chat.dim.protocol.Document;
+import chat.dim.protocol.ID;
+import chat.dim.protocol.Meta;
+
+/**
+ *  Memory-Mapped Entity Store
+ *  <p>
+ *      Saves metas & documents into an append-only log file, which is read by
+ *      memory-mapped segments; only the record offsets are kept on the heap.
+ *  </p>
+ *  <p>
+ *      The offset index is saved as a snapshot when closing, so next startup
+ *      only replays the records appended after it; 'compact()' rewrites the log
+ *      with the live records only.
+ *  </p>
+ *  <p>
+ *      The log starts with a random generation, renewed by each compaction;
+ *      a snapshot of another generation (e.g.: crashed right after compacting)
+ *      is ignored, and the whole log is replayed.
+ *  </p>
+ */
+public abstract class MappedEntityStore implements Archivist, Entity.DataSource {
+
+    public static final String LOG_FILE = "entities.log";
+    public static final String INDEX_FILE = "entities.idx";
+
+    private static final byte KIND_META = 1;
+    private static final byte KIND_DOCUMENT = 2;
+
+    // record header: length(4) + crc(4) + kind(1)
+    private static final int HEADER_SIZE = 9;
+
+    // log header: magic(4) + version(4) + generation(8)
+    private static final int LOG_HEADER_SIZE = 16;
+    private static final int LOG_MAGIC = 0x444D4C47;    // "DMLG"
+    private static final int LOG_VERSION = 1;
+
+    private static final int INDEX_MAGIC = 0x444D4958;  // "DMIX"
+    private static final int INDEX_VERSION = 2;
+
+    private static final long[] EMPTY = new long[0];
+
+    private static final class Entry {
+        volatile long meta = -1;
+        volatile long[] documents = EMPTY;
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private FileChannel channel = null;
+    private long generation = 0;
+    private long tail = 0;
+    // copy-on-write, readers take it without locking
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    // ID string => record offsets
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final AtomicLong garbage = new AtomicLong(0);
+
+    // read: load/save records; write: open/close/compact
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final Object mappingLock = new Object();
+
+    /**
+     *  Create store
+     *
+     * @param directory   - data directory
+     * @param segmentSize - bytes for each mapped segment (larger than any record)
+     */
+    public MappedEntityStore(File directory, int segmentSize) {
+        super();
+        this.directory = directory.toPath();
+        this.segmentSize = segmentSize;
+    }
+
+    public MappedEntityStore(File directory) {
+        this(directory, 64 * 1024 * 1024);
+    }
+
+    public int getEntityCount() {
+        return index.size();
+    }
+
+    /**
+     *  Bytes of the log file
+     */
+    public long getLogSize() {
+        synchronized (appendLock) {
+            return tail;
+        }
+    }
+
+    /**
+     *  Bytes of the records replaced by newer ones, compact when it's too large
+     */
+    public long getGarbageSize() {
+        return garbage.get();
+    }
+
+    //
+    //  Lifecycle
+    //
+
+    /**
+     *  Open log file, load index snapshot and replay the records after it
+     *
+     * @throws IOException on file error
+     */
+    public void open() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(directory.resolve(LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size < LOG_HEADER_SIZE) {
+                // new log file (or crashed while creating it)
+                channel.truncate(0);
+                generation = writeLogHeader(channel);
+                size = LOG_HEADER_SIZE;
+            } else {
+                generation = readLogHeader();
+            }
+            index.clear();
+            garbage.set(0);
+            long start = loadIndex(size);
+            tail = replay(start, size);
+            if (tail < size) {
+                // drop the broken tail (crashed while writing)
+                channel.truncate(tail);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  Save index snapshot and close the log file
+     *
+     * @throws IOException on file error
+     */
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            channel.force(true);
+            saveIndex();
+            channel.close();
+            channel = null;
+            segments = new MappedByteBuffer[0];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  Write all appended records to the disk
+     *
+     * @throws IOException on file error
+     */
+    public void flush() throws IOException {
+        lock.readLock().lock();
+        try {
+            channel.force(false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //
+    //  Log Header
+    //
+
+    private static long writeLogHeader(FileChannel output) throws IOException {
+        long gen = ThreadLocalRandom.current().nextLong();
+        ByteBuffer buffer = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        buffer.putInt(LOG_MAGIC);
+        buffer.putInt(LOG_VERSION);
+        buffer.putLong(gen);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer, buffer.position());
+        }
+        return gen;
+    }
+
+    private long readLogHeader() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        readFully(buffer, 0);
+        buffer.flip();
+        if (buffer.getInt() != LOG_MAGIC || buffer.getInt() != LOG_VERSION) {
+            throw new IOException("log file format error: " + directory.resolve(LOG_FILE));
+        }
+        return buffer.getLong();
+    }
+
+    //
+    //  Index Snapshot
+    //
+
+    private long loadIndex(long logSize) {
+        Path path = directory.resolve(INDEX_FILE);
+        if (!Files.exists(path)) {
+            return LOG_HEADER_SIZE;
+        }
+        try (InputStream is = Files.newInputStream(path);
+             DataInputStream dis = new DataInputStream(new BufferedInputStream(is))) {
+            if (dis.readInt() != INDEX_MAGIC || dis.readInt() != INDEX_VERSION) {
+                return LOG_HEADER_SIZE;
+            }
+            long gen = dis.readLong();
+            long covered = dis.readLong();
+            if (gen != generation || covered < LOG_HEADER_SIZE || covered > logSize) {
+                // log file changed
+                return LOG_HEADER_SIZE;
+            }
+            long waste = dis.readLong();
+            int count = dis.readInt();
+            String did;
+            Entry entry;
+            int docs;
+            long[] offsets;
+            for (int i = 0; i < count; ++i) {
+                did = dis.readUTF();
+                entry = new Entry();
+                entry.meta = dis.readLong();
+                docs = dis.readInt();
+                offsets = new long[docs];
+                for (int j = 0; j < docs; ++j) {
+                    offsets[j] = dis.readLong();
+                }
+                entry.documents = offsets;
+                index.put(did, entry);
+            }
+            garbage.set(waste);
+            return covered;
+        } catch (IOException e) {
+            // broken snapshot, rebuild from the whole log
+            index.clear();
+            garbage.set(0);
+            return LOG_HEADER_SIZE;
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        Path path = directory.resolve(INDEX_FILE);
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        try (OutputStream os = Files.newOutputStream(temp);
+             DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os))) {
+            dos.writeInt(INDEX_MAGIC);
+            dos.writeInt(INDEX_VERSION);
+            dos.writeLong(generation);
+            dos.writeLong(tail);
+            dos.writeLong(garbage.get());
+            List<Map.Entry<String, Entry>> entries = new ArrayList<>(index.entrySet());
+            dos.writeInt(entries.size());
+            long[] offsets;
+            for (Map.Entry<String, Entry> item : entries) {
+                dos.writeUTF(item.getKey());
+                dos.writeLong(item.getValue().meta);
+                offsets = item.getValue().documents;
+                dos.writeInt(offsets.length);
+                for (long pos : offsets) {
+                    dos.writeLong(pos);
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //
+    //  Records
+    //
+
+    /**
+     *  Scan records from the position
+     *
+     * @return end of the last valid record
+     */
+    private long replay(long start, long end) throws IOException {
+        long pos = start;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        int length;
+        long boundary;
+        while (pos + HEADER_SIZE <= end) {
+            boundary = (pos / segmentSize + 1) * segmentSize;
+            if (pos + HEADER_SIZE > boundary) {
+                // padding to next segment
+                pos = boundary;
+                continue;
+            }
+            header.clear();
+            readFully(header, pos);
+            header.flip();
+            length = header.getInt();
+            if (length == 0) {
+                // padding to next segment
+                pos = boundary;
+                continue;
+            } else if (length < 0 || pos + HEADER_SIZE + length > end) {
+                break;
+            }
+            int crc = header.getInt();
+            byte kind = header.get();
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, pos + HEADER_SIZE);
+            if (crc != checksum(body.array())) {
+                break;
+            }
+            Map<String, Object> info = JSONMap.decode(UTF8.decode(body.array()));
+            if (info != null) {
+                indexRecord(kind, info, pos);
+            }
+            pos += HEADER_SIZE + length;
+        }
+        return Math.min(pos, end);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("log file ended");
+            }
+        }
+    }
+
+    private void indexRecord(byte kind, Map<String, Object> info, long pos) {
+        Object did = info.get("ID");
+        if (did == null) {
+            return;
+        }
+        String key = did.toString();
+        Entry entry = index.computeIfAbsent(key, k -> new Entry());
+        if (kind == KIND_META) {
+            if (entry.meta >= 0) {
+                garbage.addAndGet(recordSize(entry.meta));
+            }
+            entry.meta = pos;
+        } else if (kind == KIND_DOCUMENT) {
+            Document doc = Document.parse(info.get("document"));
+            if (doc != null) {
+                replaceDocument(entry, key, getDocumentType(doc), pos);
+            }
+        }
+    }
+
+    private long recordSize(long pos) {
+        ByteBuffer buffer = readRecordBuffer(pos);
+        return buffer == null ? 0 : buffer.remaining();
+    }
+
+    private void replaceDocument(Entry entry, String did, String type, long pos) {
+        long[] offsets = entry.documents;
+        Map<String, Object> info;
+        Document doc;
+        for (int i = 0; i < offsets.length; ++i) {
+            info = readRecord(offsets[i], did);
+            doc = info == null ? null : Document.parse(info.get("document"));
+            if (doc != null && type.equals(getDocumentType(doc))) {
+                garbage.addAndGet(recordSize(offsets[i]));
+                long[] array = offsets.clone();
+                array[i] = pos;
+                entry.documents = array;
+                return;
+            }
+        }
+        long[] array = Arrays.copyOf(offsets, offsets.length + 1);
+        array[offsets.length] = pos;
+        entry.documents = array;
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     *  Append record to the log file
+     *
+     * @return record position
+     */
+    private long append(byte kind, Map<String, Object> info) throws IOException {
+        byte[] body = UTF8.encode(JSONMap.encode(info));
+        int size = HEADER_SIZE + body.length;
+        if (size > segmentSize) {
+            throw new IOException("record too large: " + size);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(body.length);
+        buffer.putInt(checksum(body));
+        buffer.put(kind);
+        buffer.put(body);
+        buffer.flip();
+        long pos = tail;
+        long boundary = (pos / segmentSize + 1) * segmentSize;
+        if (pos + size > boundary) {
+            // records never cross the segments, pad zeros to next segment
+            ByteBuffer padding = ByteBuffer.allocate((int) (boundary - pos));
+            while (padding.hasRemaining()) {
+                channel.write(padding, pos + padding.position());
+            }
+            pos = boundary;
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, pos + buffer.position());
+        }
+        tail = pos + size;
+        return pos;
+    }
+
+    /**
+     *  Get whole record (header + body) from the mapped segment
+     *
+     * @return record buffer, null on error
+     */
+    private ByteBuffer readRecordBuffer(long pos) {
+        int seg = (int) (pos / segmentSize);
+        int offset = (int) (pos % segmentSize);
+        MappedByteBuffer mapped = getSegment(seg, offset + HEADER_SIZE);
+        if (mapped == null) {
+            return null;
+        }
+        ByteBuffer buffer = mapped.duplicate();
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + HEADER_SIZE + length > segmentSize) {
+            assert false : "record error: " + pos;
+            return null;
+        }
+        if (offset + HEADER_SIZE + length > buffer.limit()) {
+            mapped = getSegment(seg, offset + HEADER_SIZE + length);
+            if (mapped == null) {
+                return null;
+            }
+            buffer = mapped.duplicate();
+        }
+        buffer.position(offset);
+        buffer.limit(offset + HEADER_SIZE + length);
+        return buffer.slice();
+    }
+
+    /**
+     *  Get record info, check its owner
+     *
+     * @param pos - record position
+     * @param did - entity ID string
+     * @return null on error
+     */
+    private Map<String, Object> readRecord(long pos, String did) {
+        ByteBuffer buffer = readRecordBuffer(pos);
+        if (buffer == null) {
+            return null;
+        }
+        buffer.position(HEADER_SIZE);
+        byte[] body = new byte[buffer.remaining()];
+        buffer.get(body);
+        Map<String, Object> info = JSONMap.decode(UTF8.decode(body));
+        if (info == null) {
+            return null;
+        }
+        Object owner = info.get("ID");
+        if (owner == null || !did.equals(owner.toString())) {
+            assert false : "record not match: " + did + ", " + owner + " at " + pos;
+            return null;
+        }
+        return info;
+    }
+
+    /**
+     *  Get mapped segment, map it again if the file grows
+     *
+     * @param seg    - segment index
+     * @param needed - bytes needed in this segment
+     */
+    private MappedByteBuffer getSegment(int seg, int needed) {
+        MappedByteBuffer mapped = getMapped(segments, seg, needed);
+        if (mapped != null) {
+            return mapped;
+        }
+        synchronized (mappingLock) {
+            MappedByteBuffer[] array = segments;
+            mapped = getMapped(array, seg, needed);
+            if (mapped != null) {
+                // mapped by another thread
+                return mapped;
+            }
+            long start = (long) seg * segmentSize;
+            try {
+                long size = Math.min(segmentSize, channel.size() - start);
+                if (size < needed) {
+                    assert false : "out of log file: " + (start + needed);
+                    return null;
+                }
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                // publish a new array, the readers may still be using the old one
+                array = Arrays.copyOf(array, Math.max(array.length, seg + 1));
+                array[seg] = mapped;
+                segments = array;
+                return mapped;
+            } catch (IOException e) {
+                assert false : "failed to map log file: " + e;
+                return null;
+            }
+        }
+    }
+
+    private static MappedByteBuffer getMapped(MappedByteBuffer[] array, int seg, int needed) {
+        if (seg < array.length) {
+            MappedByteBuffer mapped = array[seg];
+            if (mapped != null && mapped.limit() >= needed) {
+                return mapped;
+            }
+        }
+        return null;
+    }
+
+    protected String getDocumentType(Document doc) {
+        String type = doc.getString("type");
+        return type == null ? "" : type;
+    }
+
+    //
+    //  Compaction
+    //
+
+    /**
+     *  Rewrite the log file with the live records only
+     *
+     * @throws IOException on file error
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Path temp = directory.resolve(LOG_FILE + ".tmp");
+            Map<String, Entry> entries = new HashMap<>();
+            long gen;
+            try (FileChannel output = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                // new generation, the old snapshot will not match it
+                gen = writeLogHeader(output);
+                long pos = LOG_HEADER_SIZE;
+                long start, end;
+                Entry fresh;
+                long[] offsets;
+                List<Long> docs;
+                for (Map.Entry<String, Entry> item : index.entrySet()) {
+                    fresh = new Entry();
+                    if (item.getValue().meta >= 0) {
+                        start = alignRecord(item.getValue().meta, pos);
+                        end = copyRecord(item.getValue().meta, output, start);
+                        if (end >= 0) {
+                            fresh.meta = start;
+                            pos = end;
+                        }
+                    }
+                    offsets = item.getValue().documents;
+                    docs = new ArrayList<>(offsets.length);
+                    for (long offset : offsets) {
+                        start = alignRecord(offset, pos);
+                        end = copyRecord(offset, output, start);
+                        if (end >= 0) {
+                            docs.add(start);
+                            pos = end;
+                        }
+                    }
+                    fresh.documents = toArray(docs);
+                    entries.put(item.getKey(), fresh);
+                }
+                output.force(true);
+            }
+            channel.close();
+            Files.move(temp, directory.resolve(LOG_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            generation = gen;
+            tail = channel.size();
+            segments = new MappedByteBuffer[0];
+            index.clear();
+            index.putAll(entries);
+            garbage.set(0);
+            saveIndex();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // move to next segment if the record will cross the boundary
+    private long alignRecord(long source, long pos) {
+        long size = recordSize(source);
+        long boundary = (pos / segmentSize + 1) * segmentSize;
+        return pos + size > boundary ? boundary : pos;
+    }
+
+    /**
+     *  Copy record to the output file (the gap before 'pos' is left as zeros)
+     *
+     * @return end of the copied record, -1 on error
+     */
+    private long copyRecord(long source, FileChannel output, long pos) throws IOException {
+        ByteBuffer record = readRecordBuffer(source);
+        if (record == null) {
+            return -1;
+        }
+        int size = record.remaining();
+        while (record.hasRemaining()) {
+            output.write(record, pos + record.position());
+        }
+        return pos + size;
+    }
+
+    private static long[] toArray(List<Long> list) {
+        long[] array = new long[list.size()];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    //
+    //  Archivist
+    //
+
+    @Override
+    public boolean saveMeta(Meta meta, ID did) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("ID", did.toString());
+        info.put("meta", meta.toMap());
+        lock.readLock().lock();
+        try {
+            synchronized (appendLock) {
+                Entry entry = index.get(did.toString());
+                if (entry != null && entry.meta >= 0) {
+                    // meta will never change
+                    return true;
+                }
+                long pos = append(KIND_META, info);
+                indexRecord(KIND_META, info, pos);
+            }
+            return true;
+        } catch (IOException e) {
+            assert false : "failed to save meta: " + did + ", " + e;
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean saveDocument(Document document, ID did) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("ID", did.toString());
+        info.put("document", document.toMap());
+        String type = getDocumentType(document);
+        lock.readLock().lock();
+        try {
+            synchronized (appendLock) {
+                // check with the old one
+                Document old = getDocument(did, type);
+                if (old != null && old.getTime() != null && document.getTime() != null
+                        && document.getTime().before(old.getTime())) {
+                    // expired document
+                    return false;
+                }
+                long pos = append(KIND_DOCUMENT, info);
+                indexRecord(KIND_DOCUMENT, info, pos);
+            }
+            return true;
+        } catch (IOException e) {
+            assert false : "failed to save document: " + did + ", " + e;
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Document getDocument(ID did, String type) {
+        for (Document doc : getDocuments(did)) {
+            if (type.equals(getDocumentType(doc))) {
+                return doc;
+            }
+        }
+        return null;
+    }
+
+    // TODO: override 'getLocalUsers()'
+
+    //
+    //  Entity DataSource
+    //
+
+    @Override
+    public Meta getMeta(ID did) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(did.toString());
+            if (entry == null || entry.meta < 0) {
+                return null;
+            }
+            Map<String, Object> info = readRecord(entry.meta, did.toString());
+            return info == null ? null : Meta.parse(info.get("meta"));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> getDocuments(ID did) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(did.toString());
+            if (entry == null || entry.documents.length == 0) {
+                return Collections.emptyList();
+            }
+            long[] offsets = entry.documents;
+            List<Document> documents = new ArrayList<>(offsets.length);
+            Map<String, Object> info;
+            Document doc;
+            for (long pos : offsets) {
+                info = readRecord(pos, did.toString());
+                doc = info == null ? null : Document.parse(info.get("document"));
+                if (doc != null) {
+                    documents.add(doc);
+                }
+            }
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,415 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chat.dim.core.Archivist;
+import chat.dim.protocol.Document;
+import chat.dim.protocol.ID;
+import chat.dim.protocol.Meta;
+
+/**
+ *  Write-Behind Archivist
+ *  <p>
+ *      Acknowledges 'saveMeta()' / 'saveDocument()' after checking in memory,
+ *      keeps only the newest document for each (ID, type), and writes them
+ *      to the real archivist in batches, by schedule or when too many pending.
+ *  </p>
+ *  <p>
+ *      Records failed to write are queued again (unless replaced by newer ones)
+ *      for the next flush, and given up after 'maxRetries' attempts.
+ *  </p>
+ *  <p>
+ *      To notify observers when the records are readable, wrap the observable one:
+ *      'new WriteBehindArchivist(new ObservableArchivist(storage), ...)',
+ *      then the observers are called while flushing, right after the real archivist
+ *      saved the record (not when 'saveMeta()' / 'saveDocument()' returned here).
+ *      Before that, only 'getPendingMeta()' / 'getPendingDocuments()' can see
+ *      the pending records; call 'close()' when shutting down.
+ *  </p>
+ */
+public class WriteBehindArchivist implements Archivist {
+
+    private final Archivist archivist;
+    private final int maxPending;
+    private final int maxRetries;
+
+    private final ScheduledExecutorService scheduler;
+    private final ScheduledFuture<?> task;
+
+    // pending records
+    private Map<ID, Meta> metas = new LinkedHashMap<>();
+    private Map<ID, Map<String, Document>> documents = new LinkedHashMap<>();
+    private int documentCount = 0;
+
+    // records in writing, still visible for reading
+    private Map<ID, Meta> flushingMetas = Collections.emptyMap();
+    private Map<ID, Map<String, Document>> flushingDocuments = Collections.emptyMap();
+
+    // record => failed attempts
+    private Map<Object, Integer> retries = new IdentityHashMap<>();
+
+    // flush one batch at a time
+    private final Object flushLock = new Object();
+
+    private final AtomicLong written = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+
+    /**
+     *  Create write-behind archivist
+     *
+     * @param archivist  - real archivist
+     * @param scheduler  - scheduler for flushing, null to flush manually
+     * @param interval   - milliseconds between scheduled flushes
+     * @param maxPending - flush when pending records reach it
+     */
+    public WriteBehindArchivist(Archivist archivist, ScheduledExecutorService scheduler,
+                                long interval, int maxPending) {
+        this(archivist, scheduler, interval, maxPending, 3);
+    }
+
+    /**
+     *  Create write-behind archivist
+     *
+     * @param archivist  - real archivist
+     * @param scheduler  - scheduler for flushing, null to flush manually
+     * @param interval   - milliseconds between scheduled flushes
+     * @param maxPending - flush when pending records reach it
+     * @param maxRetries - max attempts for writing a record
+     */
+    public WriteBehindArchivist(Archivist archivist, ScheduledExecutorService scheduler,
+                                long interval, int maxPending, int maxRetries) {
+        super();
+        this.archivist = archivist;
+        this.maxPending = maxPending;
+        this.maxRetries = maxRetries;
+        this.scheduler = scheduler;
+        if (scheduler == null) {
+            this.task = null;
+        } else {
+            this.task = scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public Archivist getArchivist() {
+        return archivist;
+    }
+
+    public synchronized int getPendingCount() {
+        return metas.size() + documentCount;
+    }
+
+    /**
+     *  Count of records written to the real archivist
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     *  Count of records given up (rejected by the real archivist, or retried too many times)
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public synchronized Meta getPendingMeta(ID did) {
+        Meta meta = metas.get(did);
+        return meta != null ? meta : flushingMetas.get(did);
+    }
+
+    public synchronized List<Document> getPendingDocuments(ID did) {
+        Map<String, Document> docs = documents.get(did);
+        Map<String, Document> flushing = flushingDocuments.get(did);
+        if (flushing == null) {
+            return docs == null ? Collections.emptyList() : new ArrayList<>(docs.values());
+        } else if (docs == null) {
+            return new ArrayList<>(flushing.values());
+        }
+        Map<String, Document> all = new LinkedHashMap<>(flushing);
+        all.putAll(docs);
+        return new ArrayList<>(all.values());
+    }
+
+    //
+    //  Checking
+    //
+
+    protected boolean checkMeta(Meta meta, ID did) {
+        // TODO: override to check whether the meta matches the ID
+        return meta.isValid();
+    }
+
+    protected boolean checkDocument(Document document, ID did) {
+        // TODO: override to verify the document with the meta
+        return document.isValid();
+    }
+
+    protected String getDocumentType(Document document) {
+        String type = document.getString("type");
+        return type == null ? "" : type;
+    }
+
+    //
+    //  Archivist
+    //
+
+    @Override
+    public boolean saveMeta(Meta meta, ID did) {
+        if (!checkMeta(meta, did)) {
+            return false;
+        }
+        boolean full;
+        synchronized (this) {
+            metas.put(did, meta);
+            full = metas.size() + documentCount >= maxPending;
+        }
+        if (full) {
+            flushLater();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean saveDocument(Document document, ID did) {
+        if (!checkDocument(document, did)) {
+            return false;
+        }
+        String type = getDocumentType(document);
+        boolean full;
+        synchronized (this) {
+            Map<String, Document> docs = documents.computeIfAbsent(did, k -> new LinkedHashMap<>());
+            Document old = docs.get(type);
+            if (old == null) {
+                documentCount += 1;
+            } else if (isExpired(document, old)) {
+                // older than the pending one
+                return false;
+            }
+            docs.put(type, document);
+            full = metas.size() + documentCount >= maxPending;
+        }
+        if (full) {
+            flushLater();
+        }
+        return true;
+    }
+
+    private static boolean isExpired(Document document, Document old) {
+        Date newTime = document.getTime();
+        Date oldTime = old.getTime();
+        return newTime != null && oldTime != null && newTime.before(oldTime);
+    }
+
+    @Override
+    public List<ID> getLocalUsers() {
+        return archivist.getLocalUsers();
+    }
+
+    //
+    //  Flushing
+    //
+
+    private void flushLater() {
+        if (scheduler == null) {
+            flush();
+        } else {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    /**
+     *  Write all pending records to the real archivist
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<ID, Meta> metaBatch;
+            Map<ID, Map<String, Document>> docBatch;
+            Map<Object, Integer> attempts;
+            synchronized (this) {
+                if (metas.isEmpty() && documents.isEmpty()) {
+                    return;
+                }
+                metaBatch = metas;
+                docBatch = documents;
+                metas = new LinkedHashMap<>();
+                documents = new LinkedHashMap<>();
+                documentCount = 0;
+                // copy for reading, 'writeBatch()' removes the written ones
+                flushingMetas = new LinkedHashMap<>(metaBatch);
+                flushingDocuments = new LinkedHashMap<>();
+                for (Map.Entry<ID, Map<String, Document>> entry : docBatch.entrySet()) {
+                    flushingDocuments.put(entry.getKey(), new LinkedHashMap<>(entry.getValue()));
+                }
+                attempts = retries;
+                retries = new IdentityHashMap<>();
+            }
+            try {
+                writeBatch(metaBatch, docBatch);
+            } catch (RuntimeException e) {
+                onFlushError(metaBatch, docBatch, e);
+            } finally {
+                synchronized (this) {
+                    // records left in the batch will be retried
+                    requeue(metaBatch, docBatch, attempts);
+                    flushingMetas = Collections.emptyMap();
+                    flushingDocuments = Collections.emptyMap();
+                }
+            }
+        }
+    }
+
+    /**
+     *  Write a batch to the real archivist,
+     *  override it to write in one transaction.
+     *  <p>
+     *      Remove the records written (or rejected) from the batch,
+     *      the ones left will be retried next time; throw to retry the whole batch.
+     *  </p>
+     *
+     * @param metaBatch - ID => meta
+     * @param docBatch  - ID => (type => document)
+     */
+    protected void writeBatch(Map<ID, Meta> metaBatch, Map<ID, Map<String, Document>> docBatch) {
+        // metas first, so the documents can be verified
+        Iterator<Map.Entry<ID, Meta>> metaIterator = metaBatch.entrySet().iterator();
+        Map.Entry<ID, Meta> metaEntry;
+        while (metaIterator.hasNext()) {
+            metaEntry = metaIterator.next();
+            try {
+                if (archivist.saveMeta(metaEntry.getValue(), metaEntry.getKey())) {
+                    written.incrementAndGet();
+                } else {
+                    // rejected
+                    failed.incrementAndGet();
+                }
+                metaIterator.remove();
+            } catch (RuntimeException e) {
+                // keep it for retrying
+            }
+        }
+        Iterator<Document> docIterator;
+        Document doc;
+        for (Map.Entry<ID, Map<String, Document>> entry : docBatch.entrySet()) {
+            docIterator = entry.getValue().values().iterator();
+            while (docIterator.hasNext()) {
+                doc = docIterator.next();
+                try {
+                    if (archivist.saveDocument(doc, entry.getKey())) {
+                        written.incrementAndGet();
+                    } else {
+                        // rejected
+                        failed.incrementAndGet();
+                    }
+                    docIterator.remove();
+                } catch (RuntimeException e) {
+                    // keep it for retrying
+                }
+            }
+        }
+    }
+
+    protected void onFlushError(Map<ID, Meta> metaBatch, Map<ID, Map<String, Document>> docBatch,
+                                RuntimeException error) {
+        // TODO: override to log the error, the records left will be retried
+    }
+
+    // put the records failed back into pending, unless newer ones saved
+    private void requeue(Map<ID, Meta> metaBatch, Map<ID, Map<String, Document>> docBatch,
+                         Map<Object, Integer> attempts) {
+        for (Map.Entry<ID, Meta> entry : metaBatch.entrySet()) {
+            if (metas.containsKey(entry.getKey())) {
+                // replaced by a newer one
+                continue;
+            } else if (!retry(entry.getValue(), attempts)) {
+                continue;
+            }
+            metas.put(entry.getKey(), entry.getValue());
+        }
+        Map<String, Document> docs;
+        Document old;
+        for (Map.Entry<ID, Map<String, Document>> entry : docBatch.entrySet()) {
+            for (Map.Entry<String, Document> item : entry.getValue().entrySet()) {
+                docs = documents.get(entry.getKey());
+                old = docs == null ? null : docs.get(item.getKey());
+                if (old != null && !isExpired(old, item.getValue())) {
+                    // replaced by a newer one
+                    continue;
+                } else if (!retry(item.getValue(), attempts)) {
+                    continue;
+                }
+                if (docs == null) {
+                    docs = new LinkedHashMap<>();
+                    documents.put(entry.getKey(), docs);
+                }
+                if (old == null) {
+                    documentCount += 1;
+                }
+                docs.put(item.getKey(), item.getValue());
+            }
+        }
+    }
+
+    private boolean retry(Object record, Map<Object, Integer> attempts) {
+        Integer count = attempts.get(record);
+        int times = count == null ? 1 : count + 1;
+        if (times >= maxRetries) {
+            // give up
+            failed.incrementAndGet();
+            return false;
+        }
+        retries.put(record, times);
+        return true;
+    }
+
+    /**
+     *  Stop the schedule and write all pending records
+     */
+    public void close() {
+        if (task != null) {
+            task.cancel(false);
+        }
+        flush();
+    }
+
+}
@@ -0,0 +1,155 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.concurrent.Flow;
+
+/**
+ *  Adapters between 'chat.dim.exec.Reactive' and 'java.util.concurrent.Flow'
+ *  <p>
+ *      Only available in the Java 21 layer of the multi-release jar.
+ *  </p>
+ */
+public final class FlowAdapters {
+
+    private FlowAdapters() {
+    }
+
+    //
+    //  chat.dim.exec.Reactive -> java.util.concurrent.Flow
+    //
+
+    public static <T, R> Flow.Processor<T, R> toFlowProcessor(Reactive.Processor<T, R> processor) {
+        return new Flow.Processor<T, R>() {
+            @Override
+            public void subscribe(Flow.Subscriber<? super R> subscriber) {
+                processor.subscribe(fromFlowSubscriber(subscriber));
+            }
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                processor.onSubscribe(fromFlowSubscription(subscription));
+            }
+            @Override
+            public void onNext(T item) {
+                processor.onNext(item);
+            }
+            @Override
+            public void onError(Throwable throwable) {
+                processor.onError(throwable);
+            }
+            @Override
+            public void onComplete() {
+                processor.onComplete();
+            }
+        };
+    }
+
+    public static <T> Flow.Publisher<T> toFlowPublisher(Reactive.Publisher<T> publisher) {
+        return subscriber -> publisher.subscribe(fromFlowSubscriber(subscriber));
+    }
+
+    public static <T> Flow.Subscriber<T> toFlowSubscriber(Reactive.Subscriber<T> subscriber) {
+        return new Flow.Subscriber<T>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscriber.onSubscribe(fromFlowSubscription(subscription));
+            }
+            @Override
+            public void onNext(T item) {
+                subscriber.onNext(item);
+            }
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        };
+    }
+
+    public static Flow.Subscription toFlowSubscription(Reactive.Subscription subscription) {
+        return new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                subscription.request(n);
+            }
+            @Override
+            public void cancel() {
+                subscription.cancel();
+            }
+        };
+    }
+
+    //
+    //  java.util.concurrent.Flow -> chat.dim.exec.Reactive
+    //
+
+    public static <T> Reactive.Publisher<T> fromFlowPublisher(Flow.Publisher<T> publisher) {
+        return subscriber -> publisher.subscribe(toFlowSubscriber(subscriber));
+    }
+
+    public static <T> Reactive.Subscriber<T> fromFlowSubscriber(Flow.Subscriber<T> subscriber) {
+        return new Reactive.Subscriber<T>() {
+            @Override
+            public void onSubscribe(Reactive.Subscription subscription) {
+                subscriber.onSubscribe(toFlowSubscription(subscription));
+            }
+            @Override
+            public void onNext(T item) {
+                subscriber.onNext(item);
+            }
+            @Override
+            public void onError(Throwable throwable) {
+                subscriber.onError(throwable);
+            }
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        };
+    }
+
+    public static Reactive.Subscription fromFlowSubscription(Flow.Subscription subscription) {
+        return new Reactive.Subscription() {
+            @Override
+            public void request(long n) {
+                subscription.request(n);
+            }
+            @Override
+            public void cancel() {
+                subscription.cancel();
+            }
+        };
+    }
+
+}
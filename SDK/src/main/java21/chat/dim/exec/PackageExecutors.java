@@ -0,0 +1,85 @@
+/* license: https://mit-license.org
+ *
+ *  DIM-SDK : Decentralized Instant Messaging Software Development Kit
+ *
+ *                                Written in 2026 by Moky <albert.moky@gmail.com>
+ *
+ * ==============================================================================
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2026 Albert Moky
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * ==============================================================================
+ */
+package chat.dim.exec;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  Executors for processing packages (Java 21 layer)
+ *  <p>
+ *      Same API as the Java 8 class; each package runs on its own virtual thread,
+ *      so thousands of packages waiting on storage don't hold platform threads.
+ *  </p>
+ */
+public final class PackageExecutors {
+
+    private PackageExecutors() {
+    }
+
+    /**
+     *  Check whether the executors run tasks on virtual threads
+     *
+     * @return true for Java 21 layer
+     */
+    public static boolean isVirtual() {
+        return true;
+    }
+
+    /**
+     *  Create executor for processing packages
+     *
+     * @param name - thread name prefix
+     * @return executor service
+     */
+    public static ExecutorService newPackageExecutor(String name) {
+        ThreadFactory factory = Thread.ofVirtual().name(name + "-", 0).factory();
+        return Executors.newThreadPerTaskExecutor(factory);
+    }
+
+    /**
+     *  Create daemon thread factory
+     *
+     * @param name - thread name prefix
+     * @return thread factory
+     */
+    public static ThreadFactory newThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return runnable -> {
+            Thread thr = new Thread(runnable, name + "-" + counter.getAndIncrement());
+            thr.setDaemon(true);
+            return thr;
+        };
+    }
+
+}